@@ -0,0 +1,29 @@
+#! /bin/bash
+# Throughput and latency percentiles of a closed-loop request mix (WidgetLoadClient.java) over keep-alive connections,
+# platform threads (Tomcat pool) or virtual threads. Needs ulimit -n above the connection count.
+# ./load-test.sh <jar> <profiles> <true|false virtual threads> [connections] [seconds] [java options...]
+# ./load-test.sh target/widget-service-1.0.0.jar memory true 10000 30 -Djdk.tracePinnedThreads=short
+JAR=$1
+PROFILES=$2
+VIRTUAL=$3
+CONNECTIONS=${4:-10000}
+SECONDS_MEASURED=${5:-30}
+shift $(( $# < 5 ? $# : 5 ))
+PORT=${PORT:-8081}
+CLIENT=$(dirname "$0")/src/jmh/java/com/miro/widgetservice/load/WidgetLoadClient.java
+
+java "$@" -Dserver.port="$PORT" -Dspring.profiles.active="$PROFILES" -Dwidget.virtual-threads.enabled="$VIRTUAL" \
+  -Dserver.tomcat.max-connections=$((CONNECTIONS + 1000)) -Dserver.tomcat.accept-count=1000 -Dserver.tomcat.max-keep-alive-requests=-1 \
+  -jar "$JAR" > "${TMPDIR:-/tmp}/widget-load-test.log" 2>&1 &
+PID=$!
+until curl -sf "http://localhost:$PORT/api/v1/widget?page=0&size=1" > /dev/null; do
+  if ! kill -0 $PID 2> /dev/null; then
+    echo "Service exited" >&2
+    exit 1
+  fi
+  sleep 0.1
+done
+echo "$PROFILES virtual threads $VIRTUAL"
+java "$CLIENT" localhost "$PORT" "$CONNECTIONS" 10 "$SECONDS_MEASURED"
+kill $PID
+wait $PID 2> /dev/null
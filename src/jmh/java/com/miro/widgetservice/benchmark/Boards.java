@@ -0,0 +1,100 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated boards of the same density whatever the size: about one widget per 100x100 square.
+ * {@code uniform} spreads widgets over the whole board, {@code clustered} puts them around a few hot spots.
+ */
+final class Boards {
+
+    static final String UNIFORM = "uniform";
+
+    static final String CLUSTERED = "clustered";
+
+    private static final int CLUSTERS = 16;
+
+    private Boards() {
+    }
+
+    static int side(int boardSize) {
+        return (int)Math.sqrt(boardSize) * 100;
+    }
+
+    /**
+     * Widgets without ids with z indexes {@code 0..boardSize-1}.
+     */
+    static List<Widget> widgets(int boardSize, String distribution, Random random) {
+        int side = side(boardSize);
+        int[] clusterCenters = clusterCenters(side);
+        LocalDateTime modificationDate = LocalDateTime.now();
+        List<Widget> widgets = new ArrayList<>(boardSize);
+        for (int i = 0; i < boardSize; i++) {
+            widgets.add(widget(point(side, distribution, clusterCenters, random), i, modificationDate, random));
+        }
+        return widgets;
+    }
+
+    static Widget widget(int[] point, Integer zIndex, LocalDateTime modificationDate, Random random) {
+        int size = random.nextInt(50) == 0 ? 2_000 : 100;
+        return Widget.builder()
+            .xPoint(point[0])
+            .yPoint(point[1])
+            .width(random.nextInt(size) + 1)
+            .height(random.nextInt(size) + 1)
+            .zIndex(zIndex)
+            .modificationDate(modificationDate)
+            .build();
+    }
+
+    static int[] point(int side, String distribution, int[] clusterCenters, Random random) {
+        if (UNIFORM.equals(distribution)) {
+            return new int[] {random.nextInt(side), random.nextInt(side)};
+        }
+        if (!CLUSTERED.equals(distribution)) {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        int cluster = random.nextInt(CLUSTERS) * 2;
+        double spread = side / 40.0;
+        return new int[] {
+            clusterCenters[cluster] + (int)(random.nextGaussian() * spread),
+            clusterCenters[cluster + 1] + (int)(random.nextGaussian() * spread)
+        };
+    }
+
+    /**
+     * Same hot spots for widgets and viewports of one board size.
+     */
+    static int[] clusterCenters(int side) {
+        Random random = new Random(side);
+        int[] centers = new int[CLUSTERS * 2];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextInt(side);
+        }
+        return centers;
+    }
+
+    /**
+     * Screen sized viewports, around a hot spot for the {@code clustered} board.
+     */
+    static SearchAreaDto[] viewports(int boardSize, String distribution, int count, Random random) {
+        int side = side(boardSize);
+        int[] clusterCenters = clusterCenters(side);
+        SearchAreaDto[] viewports = new SearchAreaDto[count];
+        for (int i = 0; i < count; i++) {
+            int[] corner = point(side, distribution, clusterCenters, random);
+            viewports[i] = SearchAreaDto.builder()
+                .xPoint1(corner[0])
+                .yPoint1(corner[1])
+                .xPoint2(corner[0] + 1_920)
+                .yPoint2(corner[1] + 1_080)
+                .build();
+        }
+        return viewports;
+    }
+}
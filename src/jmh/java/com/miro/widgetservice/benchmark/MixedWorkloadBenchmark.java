@@ -0,0 +1,77 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent mix of viewport pages and widget moves on the {@code memory} repository.
+ * Every thread picks a write with {@code writePercent} probability; override the thread count with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-jmh.xml"})
+public class MixedWorkloadBenchmark {
+
+    private static final int VIEWPORTS = 1_024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    @Param({Boards.UNIFORM, Boards.CLUSTERED})
+    private String distribution;
+
+    @Param({"0", "5", "50"})
+    private int writePercent;
+
+    private WidgetInMemoryRepository widgetRepository;
+
+    private SearchAreaDto[] viewports;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        widgetRepository = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil());
+        widgetRepository.saveAll(Boards.widgets(boardSize, distribution, random));
+        viewports = Boards.viewports(boardSize, distribution, VIEWPORTS, random);
+    }
+
+    /**
+     * A read is the first page of a viewport, a write moves an existing widget to another viewport and on top.
+     */
+    @Benchmark
+    public Object readOrWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SearchAreaDto viewport = viewports[random.nextInt(VIEWPORTS)];
+        if (random.nextInt(100) >= writePercent) {
+            return widgetRepository.findAll(0, 10, viewport);
+        }
+        int[] point = {viewport.getXPoint1(), viewport.getYPoint1()};
+        Widget widget = Boards.widget(point, null, LocalDateTime.now(), random);
+        widget.setId(random.nextLong(boardSize) + 1);
+        return widgetRepository.save(widget);
+    }
+}
@@ -0,0 +1,102 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.struct.SpatialIndex;
+import com.miro.widgetservice.struct.SpatialIndexFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Viewport search and widget moves on a loaded spatial index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-jmh.xml"})
+public class SpatialIndexBenchmark {
+
+    private static final int VIEWPORTS = 1_024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    @Param({Boards.UNIFORM, Boards.CLUSTERED})
+    private String distribution;
+
+    @Param({"rtree", "int-rtree", "grid", "quadtree"})
+    private String index;
+
+    private SpatialIndex spatialIndex;
+
+    private List<Widget> widgets;
+
+    private SearchAreaDto[] viewports;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        spatialIndex = SpatialIndexFactory.builder()
+            .type(index)
+            .gridCellSize(256)
+            .gridMaxCellsPerWidget(64)
+            .quadTreeNodeCapacity(16)
+            .quadTreeMaxDepth(24)
+            .build()
+            .create();
+        widgets = Boards.widgets(boardSize, distribution, random);
+
+        long[] ids = new long[boardSize];
+        int[] bounds = new int[boardSize * 4];
+        for (int i = 0; i < boardSize; i++) {
+            Widget widget = widgets.get(i);
+            ids[i] = i + 1;
+            bounds[i * 4] = widget.getXPoint();
+            bounds[i * 4 + 1] = widget.getYPoint();
+            bounds[i * 4 + 2] = widget.getXPoint() + widget.getWidth();
+            bounds[i * 4 + 3] = widget.getYPoint() + widget.getHeight();
+        }
+        spatialIndex.loadAll(ids, bounds, boardSize);
+        viewports = Boards.viewports(boardSize, distribution, VIEWPORTS, random);
+    }
+
+    @Benchmark
+    public void findInArea(Blackhole blackhole) {
+        SearchAreaDto viewport = viewports[next++ & (VIEWPORTS - 1)];
+        spatialIndex.findInArea(viewport.getXPoint1(), viewport.getYPoint1(), viewport.getXPoint2(),
+            viewport.getYPoint2(), blackhole::consume);
+    }
+
+    /**
+     * Moves widgets one by one to viewport corners, which follow the same distribution as the board.
+     */
+    @Benchmark
+    public void putOrReplace() {
+        int position = next++;
+        Widget widget = widgets.get(position % boardSize);
+        SearchAreaDto viewport = viewports[position & (VIEWPORTS - 1)];
+        spatialIndex.putOrReplace(position % boardSize + 1,
+            viewport.getXPoint1(),
+            viewport.getYPoint1(),
+            viewport.getXPoint1() + widget.getWidth(),
+            viewport.getYPoint1() + widget.getHeight());
+    }
+}
@@ -0,0 +1,105 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.converter.WidgetConverter;
+import com.miro.widgetservice.dto.WidgetReqDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.model.WidgetEntity;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class WidgetConverterBenchmark {
+
+    private final WidgetConverter widgetConverter = new WidgetConverter();
+
+    /**
+     * Reflective mapping the converter used before, kept as the baseline.
+     */
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private final Widget widget = Widget.builder()
+        .id(1L)
+        .xPoint(10)
+        .yPoint(20)
+        .zIndex(3)
+        .width(100)
+        .height(50)
+        .modificationDate(LocalDateTime.now())
+        .build();
+
+    private final WidgetEntity widgetEntity = WidgetEntity.builder()
+        .id(1L)
+        .xPoint(10)
+        .yPoint(20)
+        .zIndex(3)
+        .width(100)
+        .height(50)
+        .xPoint2(110)
+        .yPoint2(70)
+        .modificationDate(LocalDateTime.now())
+        .build();
+
+    private final WidgetReqDto widgetReqDto = WidgetReqDto.builder()
+        .xPoint(10)
+        .yPoint(20)
+        .zIndex(3)
+        .width(100)
+        .height(50)
+        .build();
+
+    @Benchmark
+    public WidgetRespDto toResponse() {
+        return widgetConverter.convert(widget);
+    }
+
+    @Benchmark
+    public Widget fromRequest() {
+        return widgetConverter.convert(widgetReqDto);
+    }
+
+    @Benchmark
+    public WidgetRespDto entityToResponse() {
+        return widgetConverter.convertEntity(widgetEntity);
+    }
+
+    @Benchmark
+    public WidgetEntity entityFromRequest() {
+        return widgetConverter.convertEntity(widgetReqDto);
+    }
+
+    @Benchmark
+    public WidgetRespDto toResponseModelMapper() {
+        return modelMapper.map(widget, WidgetRespDto.class);
+    }
+
+    @Benchmark
+    public Widget fromRequestModelMapper() {
+        return modelMapper.map(widgetReqDto, Widget.class);
+    }
+
+    @Benchmark
+    public WidgetRespDto entityToResponseModelMapper() {
+        return modelMapper.map(widgetEntity, WidgetRespDto.class);
+    }
+
+    @Benchmark
+    public WidgetEntity entityFromRequestModelMapper() {
+        return modelMapper.map(widgetReqDto, WidgetEntity.class);
+    }
+}
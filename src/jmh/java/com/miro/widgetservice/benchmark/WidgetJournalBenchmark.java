@@ -0,0 +1,120 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.repository.memory.WidgetJournal;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saves of the {@code memory} repository with the journal off and with every fsync policy.
+ * Snapshots are off, so the difference is the cost of logging alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-jmh.xml"})
+public class WidgetJournalBenchmark {
+
+    static final String OFF = "off";
+
+    @Param({OFF, "never", "interval", "always"})
+    private String fsync;
+
+    @Param({"100000"})
+    private int boardSize;
+
+    private Path directory;
+
+    private WidgetJournal widgetJournal;
+
+    private WidgetInMemoryRepository widgetRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widget-journal");
+        if (!OFF.equals(fsync)) {
+            widgetJournal = journal(directory, WidgetJournal.Fsync.valueOf(fsync.toUpperCase()), 0);
+        }
+        widgetRepository = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil(),
+            Optional.ofNullable(widgetJournal), new SimpleMeterRegistry());
+        widgetRepository.saveAll(Boards.widgets(boardSize, Boards.UNIFORM, new Random(42)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (widgetJournal != null) {
+            widgetJournal.close();
+        }
+        delete(directory);
+    }
+
+    /**
+     * Save on top of the board and delete it, two journal records.
+     */
+    @Benchmark
+    @Threads(1)
+    public Widget saveOnTop() {
+        return saveAndDelete();
+    }
+
+    /**
+     * Same with 8 writers, with {@code always} they share syncs.
+     */
+    @Benchmark
+    @Threads(8)
+    public Widget saveOnTopConcurrent() {
+        return saveAndDelete();
+    }
+
+    private Widget saveAndDelete() {
+        Random random = ThreadLocalRandom.current();
+        int side = Boards.side(boardSize);
+        int[] point = {random.nextInt(side), random.nextInt(side)};
+        Widget saved = widgetRepository.save(Boards.widget(point, null, LocalDateTime.now(), random));
+        widgetRepository.deleteById(saved.getId());
+        return saved;
+    }
+
+    static WidgetJournal journal(Path directory, WidgetJournal.Fsync fsync, long snapshotRecords) {
+        return WidgetJournal.builder()
+            .directory(directory)
+            .fsync(fsync)
+            .fsyncIntervalMillis(100)
+            .snapshotRecords(snapshotRecords)
+            .build();
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
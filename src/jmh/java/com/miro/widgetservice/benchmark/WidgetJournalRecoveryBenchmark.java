@@ -0,0 +1,84 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.repository.memory.WidgetJournal;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup of the {@code memory} repository from a snapshot of {@code boardSize} widgets
+ * followed by {@code tailRecords} logged saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-jmh.xml"})
+public class WidgetJournalRecoveryBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int boardSize;
+
+    @Param({"0", "100000"})
+    private int tailRecords;
+
+    private Path directory;
+
+    private WidgetJournal recovered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widget-journal");
+        Random random = new Random(42);
+        WidgetJournal widgetJournal = WidgetJournalBenchmark.journal(directory, WidgetJournal.Fsync.NEVER, 0);
+        WidgetInMemoryRepository widgetRepository = new WidgetInMemoryRepository(IntRTreeStorage::new,
+            new WidgetUtil(), Optional.of(widgetJournal), new SimpleMeterRegistry());
+        widgetRepository.saveAll(Boards.widgets(boardSize, Boards.UNIFORM, random));
+        widgetRepository.snapshot();
+        int side = Boards.side(boardSize);
+        for (int i = 0; i < tailRecords; i++) {
+            int[] point = {random.nextInt(side), random.nextInt(side)};
+            widgetRepository.save(Boards.widget(point, null, LocalDateTime.now(), random));
+        }
+        widgetJournal.close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRecovered() {
+        recovered.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        WidgetJournalBenchmark.delete(directory);
+    }
+
+    @Benchmark
+    public WidgetInMemoryRepository recover() {
+        recovered = WidgetJournalBenchmark.journal(directory, WidgetJournal.Fsync.NEVER, 0);
+        return new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil(), Optional.of(recovered),
+            new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,99 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single threaded saves and reads of the {@code memory} repository. Boards have contiguous z indexes,
+ * so a save at an occupied z index shifts everything above it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=logback-jmh.xml"})
+public class WidgetRepositoryBenchmark {
+
+    private static final int VIEWPORTS = 1_024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    @Param({Boards.UNIFORM, Boards.CLUSTERED})
+    private String distribution;
+
+    private WidgetInMemoryRepository widgetRepository;
+
+    private SearchAreaDto[] viewports;
+
+    private Random random;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(42);
+        widgetRepository = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil());
+        widgetRepository.saveAll(Boards.widgets(boardSize, distribution, random));
+        viewports = Boards.viewports(boardSize, distribution, VIEWPORTS, random);
+    }
+
+    /**
+     * Save on top of the board, then delete it to keep the board size.
+     */
+    @Benchmark
+    public Widget saveOnTop() {
+        return saveAndDelete(null);
+    }
+
+    /**
+     * Save below the whole board, every other widget moves up by one; then delete it.
+     */
+    @Benchmark
+    public Widget saveWithShift() {
+        return saveAndDelete(0);
+    }
+
+    @Benchmark
+    public List<Widget> findPageInArea() {
+        return widgetRepository.findAll(0, 10, viewports[next++ & (VIEWPORTS - 1)]);
+    }
+
+    @Benchmark
+    public List<Widget> findAllInArea() {
+        return widgetRepository.findAll(viewports[next++ & (VIEWPORTS - 1)]);
+    }
+
+    @Benchmark
+    public List<Widget> findAllFromZIndex() {
+        return widgetRepository.findAllFromZIndex(random.nextInt(boardSize), 10, SearchAreaDto.builder().build());
+    }
+
+    private Widget saveAndDelete(Integer zIndex) {
+        SearchAreaDto viewport = viewports[next++ & (VIEWPORTS - 1)];
+        int[] point = {viewport.getXPoint1(), viewport.getYPoint1()};
+        Widget saved = widgetRepository.save(Boards.widget(point, zIndex, LocalDateTime.now(), random));
+        widgetRepository.deleteById(saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,103 @@
+package com.miro.widgetservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miro.widgetservice.config.WireFormatConfig;
+import com.miro.widgetservice.converter.WidgetConverter;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.model.Widget;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Whole board listing in JSON and in Smile with the mappers the application uses. Payload sizes are printed
+ * at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<WidgetRespDto>> WIDGET_LIST = new TypeReference<>() {
+    };
+
+    @Param({"100000"})
+    private int boardSize;
+
+    private ObjectMapper jsonMapper;
+
+    private ObjectMapper smileMapper;
+
+    private List<WidgetRespDto> widgets;
+
+    private byte[] json;
+
+    private byte[] smile;
+
+    @Setup
+    public void setUp() throws Exception {
+        jsonMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+        smileMapper = new WireFormatConfig().smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))
+            .getObjectMapper();
+
+        Random random = new Random(boardSize);
+        LocalDateTime now = LocalDateTime.now();
+        WidgetConverter widgetConverter = new WidgetConverter();
+        List<Widget> board = Boards.widgets(boardSize, Boards.UNIFORM, random);
+        long id = 1;
+        for (Widget widget : board) {
+            widget.setId(id++);
+            widget.setModificationDate(now.minusNanos(random.nextInt(Integer.MAX_VALUE) * 1_000L));
+        }
+        widgets = board.stream()
+            .map(widgetConverter::convert)
+            .collect(Collectors.toList());
+
+        json = jsonMapper.writeValueAsBytes(widgets);
+        smile = smileMapper.writeValueAsBytes(widgets);
+        System.out.printf("%n%d widgets: json %d bytes (%.1f per widget), smile %d bytes (%.1f per widget)%n",
+            boardSize, json.length, (double)json.length / boardSize, smile.length, (double)smile.length / boardSize);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws Exception {
+        return jsonMapper.writeValueAsBytes(widgets);
+    }
+
+    @Benchmark
+    public byte[] writeSmile() throws Exception {
+        return smileMapper.writeValueAsBytes(widgets);
+    }
+
+    @Benchmark
+    public List<WidgetRespDto> readJson() throws Exception {
+        return jsonMapper.readValue(json, WIDGET_LIST);
+    }
+
+    @Benchmark
+    public List<WidgetRespDto> readSmile() throws Exception {
+        return smileMapper.readValue(smile, WIDGET_LIST);
+    }
+}
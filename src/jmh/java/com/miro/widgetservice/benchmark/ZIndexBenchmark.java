@@ -0,0 +1,45 @@
+package com.miro.widgetservice.benchmark;
+
+import com.miro.widgetservice.struct.ZOrderTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End of the contiguous z index run that a save at z index 0 would shift in the {@code memory} profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ZIndexBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    private final ZOrderTree zOrderTree = new ZOrderTree();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int zIndex = 0; zIndex < boardSize; zIndex++) {
+            zOrderTree.insert(zIndex, zIndex);
+        }
+    }
+
+    @Benchmark
+    public int lastZIndexWithoutGap() {
+        return zOrderTree.lastZIndexWithoutGap(0);
+    }
+}
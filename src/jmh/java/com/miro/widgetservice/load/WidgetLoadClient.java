@@ -0,0 +1,239 @@
+package com.miro.widgetservice.load;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Closed-loop HTTP/1.1 load: every connection is a keep-alive socket on its own virtual thread sending
+ * the next request as soon as the previous response is read. Mix: 80% {@code GET /widget/{id}},
+ * 15% viewport search, 5% create in front of an existing z-index. Needs only the JDK, run as a single file:
+ * <p>
+ * {@code java WidgetLoadClient.java <host> <port> <connections> <warmup seconds> <seconds> [widgets]}
+ */
+public class WidgetLoadClient {
+
+    private static final String WIDGETS = "/api/v1/widget";
+
+    private static final int BOARD_SIZE = 10_000;
+
+    private static final int CONCURRENT_CONNECTS = 256;
+
+    private static final AtomicLong FAILURES = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        long warmupNanos = Long.parseLong(args[3]) * 1_000_000_000L;
+        long measureNanos = Long.parseLong(args[4]) * 1_000_000_000L;
+        int widgets = args.length > 5 ? Integer.parseInt(args[5]) : 10_000;
+
+        try (Connection connection = new Connection(host, port)) {
+            for (int created = 0; created < widgets; created += 1_000) {
+                connection.exchange(batch(created, Math.min(1_000, widgets - created)));
+            }
+        }
+
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long measureTo = measureFrom + measureNanos;
+        Semaphore connects = new Semaphore(CONCURRENT_CONNECTS);
+        List<Future<long[]>> latencies = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                latencies.add(clients.submit(() -> run(host, port, widgets, connects, measureFrom, measureTo)));
+            }
+        }
+
+        LongStream.Builder all = LongStream.builder();
+        for (Future<long[]> connectionLatencies : latencies) {
+            Arrays.stream(connectionLatencies.get()).forEach(all);
+        }
+        long[] sorted = all.build().sorted().toArray();
+        System.out.printf("connections %d, requests %d, failures %d, %.0f req/s%n",
+            connections, sorted.length, FAILURES.get(), sorted.length / (measureNanos / 1e9));
+        System.out.printf("latency ms: p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+            percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1));
+    }
+
+    /**
+     * Latencies of the requests sent in the measurement window, nanoseconds.
+     */
+    private static long[] run(String host, int port, int widgets, Semaphore connects, long measureFrom, long measureTo) {
+        LongStream.Builder latencies = LongStream.builder();
+        Connection connection = null;
+        try {
+            for (long sent = System.nanoTime(); sent < measureTo; sent = System.nanoTime()) {
+                if (connection == null) {
+                    connection = connect(host, port, connects);
+                }
+                if (!connection.exchange(request(widgets))) {
+                    connection.close();
+                    connection = null;
+                }
+                if (sent >= measureFrom) {
+                    latencies.add(System.nanoTime() - sent);
+                }
+            }
+        } catch (IOException exception) {
+            FAILURES.incrementAndGet();
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        return latencies.build().toArray();
+    }
+
+    private static Connection connect(String host, int port, Semaphore connects) throws IOException {
+        connects.acquireUninterruptibly();
+        try {
+            return new Connection(host, port);
+        } finally {
+            connects.release();
+        }
+    }
+
+    private static byte[] request(int widgets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int kind = random.nextInt(100);
+        if (kind < 80) {
+            return get(WIDGETS + "/" + (1 + random.nextInt(widgets)));
+        }
+        if (kind < 95) {
+            int x = random.nextInt(BOARD_SIZE);
+            int y = random.nextInt(BOARD_SIZE);
+            return get(WIDGETS + "?xPoint1=" + x + "&yPoint1=" + y + "&xPoint2=" + (x + 500) + "&yPoint2=" + (y + 500));
+        }
+        return post(WIDGETS, widget(random.nextInt(BOARD_SIZE), random.nextInt(BOARD_SIZE), random.nextInt(widgets)));
+    }
+
+    private static byte[] batch(int from, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            body.append(i == 0 ? "" : ",").append(widget(random.nextInt(BOARD_SIZE), random.nextInt(BOARD_SIZE), from + i));
+        }
+        return post(WIDGETS + "/batch", body.append(']').toString());
+    }
+
+    private static String widget(int x, int y, int zIndex) {
+        return "{\"xpoint\":" + x + ",\"ypoint\":" + y + ",\"zindex\":" + zIndex + ",\"width\":50,\"height\":50}";
+    }
+
+    private static byte[] get(String path) {
+        return ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] post(String path, String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String head = "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+            + "Content-Length: " + body.length + "\r\n\r\n";
+        byte[] request = Arrays.copyOf(head.getBytes(StandardCharsets.US_ASCII), head.length() + body.length);
+        System.arraycopy(body, 0, request, head.length(), body.length);
+        return request;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int)Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static class Connection implements AutoCloseable {
+
+        private final Socket socket;
+
+        private final OutputStream out;
+
+        private final InputStream in;
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port));
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        /**
+         * Sends the request and reads the whole response, fixed length or chunked.
+         *
+         * @return false if the server closes the connection after the response
+         */
+        boolean exchange(byte[] request) throws IOException {
+            out.write(request);
+            out.flush();
+            String status = line();
+            if (!status.startsWith("HTTP/1.1 2")) {
+                throw new IOException(status);
+            }
+            long length = 0;
+            boolean chunked = false;
+            boolean keepAlive = true;
+            for (String header = line(); !header.isEmpty(); header = line()) {
+                String name = header.substring(0, header.indexOf(':')).trim();
+                String value = header.substring(header.indexOf(':') + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = !value.equalsIgnoreCase("close");
+                }
+            }
+            if (!chunked) {
+                skip(length);
+                return keepAlive;
+            }
+            for (long chunk = Long.parseLong(line(), 16); chunk > 0; chunk = Long.parseLong(line(), 16)) {
+                skip(chunk);
+                line();
+            }
+            line();
+            return keepAlive;
+        }
+
+        private String line() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.append((char)b);
+                }
+            }
+            return line.toString();
+        }
+
+        private void skip(long bytes) throws IOException {
+            in.skipNBytes(bytes);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException exception) {
+                // nothing to release
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.miro.widgetservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.model.WidgetEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through cache of {@code database} profile responses: widgets by id and ordered listings.
+ * Writes evict only entries a changed widget or a shifted z index range can be part of, after the transaction
+ * commits. A load that overlaps an eviction is not kept, so a reader never caches a state older than the commit.
+ * <p>
+ * Entries are indexed by z index: widgets by their own, listings by the last z index they depend on. A write
+ * visits only entries at or above the lowest z index it changes, and drops only those it matches, so the rest
+ * of a warm cache stays. Hit and miss counters are published as {@code cache.gets} metrics.
+ */
+@Component
+@Profile("database")
+public class WidgetCache {
+
+    private final Cache<Long, CachedWidget> widgetsById;
+
+    private final Cache<WidgetQueryKey, CachedQuery> queries;
+
+    private final NavigableMap<ZIndexed, CachedWidget> widgetsByZIndex = new ConcurrentSkipListMap<>();
+
+    private final NavigableMap<ZIndexed, CachedQuery> queriesByZIndex = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong entrySequence = new AtomicLong();
+
+    public WidgetCache(@Value("${widget.database.cache.max-widgets:10000}") long maxWidgets,
+        @Value("${widget.database.cache.max-query-widgets:100000}") long maxQueryWidgets,
+        MeterRegistry meterRegistry) {
+
+        this.widgetsById = Caffeine.newBuilder()
+            .maximumSize(maxWidgets)
+            .executor(Runnable::run)
+            .<Long, CachedWidget>removalListener((id, widget, cause) -> widgetsByZIndex.remove(widget.zIndexed))
+            .recordStats()
+            .build();
+        this.queries = Caffeine.newBuilder()
+            .maximumWeight(maxQueryWidgets)
+            .<WidgetQueryKey, CachedQuery>weigher((key, query) -> query.widgets.size() + 1)
+            .executor(Runnable::run)
+            .<WidgetQueryKey, CachedQuery>removalListener((key, query, cause) -> queriesByZIndex.remove(query.zIndexed))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, widgetsById, "widgetsById");
+        CaffeineCacheMetrics.monitor(meterRegistry, queries, "widgetQueries");
+    }
+
+    public Optional<WidgetRespDto> findById(Long id, Function<Long, Optional<WidgetRespDto>> loader) {
+        CachedWidget cached = widgetsById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.widget);
+        }
+        long version = evictions.get();
+        Optional<WidgetRespDto> loaded = loader.apply(id);
+        loaded.ifPresent(widget -> putWidget(widget, version));
+        return loaded;
+    }
+
+    /**
+     * Widgets of the given ids in the same order, missing ones are loaded with one call of the loader.
+     * Ids the loader does not return are skipped.
+     */
+    public List<WidgetRespDto> findAllById(List<Long> ids, Function<List<Long>, List<WidgetRespDto>> loader) {
+        Map<Long, WidgetRespDto> found = new HashMap<>();
+        widgetsById.getAllPresent(ids).forEach((id, cached) -> found.put(id, cached.widget));
+        if (found.size() < ids.size()) {
+            long version = evictions.get();
+            List<Long> missing = ids.stream()
+                .filter(id -> !found.containsKey(id))
+                .collect(Collectors.toList());
+            for (WidgetRespDto widget : loader.apply(missing)) {
+                found.put(widget.getId(), widget);
+                putWidget(widget, version);
+            }
+        }
+        return ids.stream()
+            .map(found::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param limit maximum result size of the query, {@code null} when it is not limited
+     */
+    public List<WidgetRespDto> findAll(WidgetQueryKey key, Integer limit, Supplier<List<WidgetRespDto>> loader) {
+        CachedQuery cached = queries.getIfPresent(key);
+        if (cached != null) {
+            return cached.widgets;
+        }
+        long version = evictions.get();
+        List<WidgetRespDto> loaded = List.copyOf(loader.get());
+        CachedQuery query = new CachedQuery(key, limit, loaded, entrySequence.incrementAndGet());
+        put(queries, queriesByZIndex, key, query, query.zIndexed, version);
+        return loaded;
+    }
+
+    /**
+     * Evicts entries the widget in its current state is or would be part of. Call it with the state before
+     * and after a change.
+     */
+    public void evict(WidgetEntity widgetEntity) {
+        long id = widgetEntity.getId();
+        int xPoint = widgetEntity.getXPoint();
+        int yPoint = widgetEntity.getYPoint();
+        int xPoint2 = widgetEntity.getXPoint2();
+        int yPoint2 = widgetEntity.getYPoint2();
+        int zIndex = widgetEntity.getZIndex();
+
+        afterCommit(() -> {
+            widgetsById.invalidate(id);
+            evictMatching(queries, queriesByZIndex.tailMap(ZIndexed.first(zIndex)),
+                query -> query.covers(zIndex, zIndex) && query.contains(xPoint, yPoint, xPoint2, yPoint2));
+        });
+    }
+
+    /**
+     * Evicts entries of widgets with z index in {@code [zIndexStart, zIndexEnd]} moved up by {@code shift}.
+     */
+    public void evictShift(int zIndexStart, int zIndexEnd, int shift) {
+        afterCommit(() -> {
+            evictMatching(widgetsById,
+                widgetsByZIndex.subMap(ZIndexed.first(zIndexStart), true, ZIndexed.last(zIndexEnd), true),
+                widget -> true);
+            evictMatching(queries, queriesByZIndex.tailMap(ZIndexed.first(zIndexStart)),
+                query -> query.covers(zIndexStart, (long)zIndexEnd + shift));
+        });
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            widgetsById.invalidateAll();
+            queries.invalidateAll();
+        });
+    }
+
+    /**
+     * Removes matching entries among the candidates taken from a z index view of the cache.
+     */
+    private <K, V extends Cached<K>> void evictMatching(Cache<K, V> cache, Map<ZIndexed, V> candidates,
+        Predicate<V> matching) {
+
+        for (V candidate : candidates.values()) {
+            if (matching.test(candidate)) {
+                cache.asMap().remove(candidate.key(), candidate);
+            }
+        }
+    }
+
+    private void putWidget(WidgetRespDto widget, long version) {
+        CachedWidget cached = new CachedWidget(widget, entrySequence.incrementAndGet());
+        put(widgetsById, widgetsByZIndex, widget.getId(), cached, cached.zIndexed, version);
+    }
+
+    /**
+     * Caches the value and indexes it by z index, unless an eviction ran since the load started. An entry that
+     * is already cached stays: any eviction since it was put would have removed it.
+     */
+    private <K, V> void put(Cache<K, V> cache, Map<ZIndexed, V> index, K key, V value, ZIndexed zIndexed,
+        long version) {
+
+        if (evictions.get() != version || cache.asMap().putIfAbsent(key, value) != null) {
+            return;
+        }
+        index.put(zIndexed, value);
+        if (evictions.get() != version || cache.asMap().get(key) != value) {
+            cache.asMap().remove(key, value);
+            index.remove(zIndexed);
+        }
+    }
+
+    private void afterCommit(Runnable eviction) {
+        Runnable countedEviction = () -> {
+            evictions.incrementAndGet();
+            eviction.run();
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            countedEviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                countedEviction.run();
+            }
+        });
+    }
+
+    private interface Cached<K> {
+
+        K key();
+    }
+
+    /**
+     * Position of a cache entry in a z index view, {@code sequence} tells apart entries with the same z index.
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class ZIndexed implements Comparable<ZIndexed> {
+
+        private final long zIndex;
+
+        private final long sequence;
+
+        private static ZIndexed first(long zIndex) {
+            return new ZIndexed(zIndex, Long.MIN_VALUE);
+        }
+
+        private static ZIndexed last(long zIndex) {
+            return new ZIndexed(zIndex, Long.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(ZIndexed other) {
+            int byZIndex = Long.compare(zIndex, other.zIndex);
+            return byZIndex != 0 ? byZIndex : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class CachedWidget implements Cached<Long> {
+
+        private final WidgetRespDto widget;
+
+        private final ZIndexed zIndexed;
+
+        private CachedWidget(WidgetRespDto widget, long sequence) {
+            this.widget = widget;
+            this.zIndexed = new ZIndexed(widget.getZIndex(), sequence);
+        }
+
+        @Override
+        public Long key() {
+            return widget.getId();
+        }
+    }
+
+    /**
+     * Result of an ordered listing with the z index window it depends on: from the cursor, or from the bottom
+     * for offset pages, up to the last returned widget when the page is full. Indexed by the window end.
+     */
+    private static final class CachedQuery implements Cached<WidgetQueryKey> {
+
+        private final WidgetQueryKey key;
+
+        private final long fromZIndex;
+
+        private final long toZIndex;
+
+        private final List<WidgetRespDto> widgets;
+
+        private final ZIndexed zIndexed;
+
+        private CachedQuery(WidgetQueryKey key, Integer limit, List<WidgetRespDto> widgets, long sequence) {
+            this.key = key;
+            this.fromZIndex = Objects.isNull(key.getFromZIndex()) ? Integer.MIN_VALUE : key.getFromZIndex();
+            this.toZIndex = !Objects.isNull(limit) && !widgets.isEmpty() && widgets.size() >= limit
+                ? widgets.get(widgets.size() - 1).getZIndex()
+                : Integer.MAX_VALUE;
+            this.widgets = widgets;
+            this.zIndexed = new ZIndexed(toZIndex, sequence);
+        }
+
+        @Override
+        public WidgetQueryKey key() {
+            return key;
+        }
+
+        private boolean covers(long zIndexStart, long zIndexEnd) {
+            return zIndexStart <= toZIndex && zIndexEnd >= fromZIndex;
+        }
+
+        private boolean contains(int xPoint, int yPoint, int xPoint2, int yPoint2) {
+            SearchAreaDto area = key.getArea();
+            return area == null
+                || area.getXPoint1() <= xPoint
+                && area.getYPoint1() <= yPoint
+                && area.getXPoint2() >= xPoint2
+                && area.getYPoint2() >= yPoint2;
+        }
+    }
+}
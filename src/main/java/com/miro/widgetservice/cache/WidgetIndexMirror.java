@@ -0,0 +1,187 @@
+package com.miro.widgetservice.cache;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.model.WidgetEntity;
+import com.miro.widgetservice.repository.jpa.WidgetJpaRepository;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Coordinates and z order of the {@code widgets} table kept in a {@link WidgetInMemoryRepository} for the
+ * {@code hybrid} profile. Loaded from the table at startup, every committed change is replayed after commit
+ * in the order it was made. Area queries return ids only, widgets are read from the database or
+ * {@link WidgetCache}.
+ * <p>
+ * Mirror changes do not commute (an insert at an occupied z index moves the run a later shift refers to), so they
+ * are applied in commit order: a transaction with changes takes {@code commitLock} before it commits and releases
+ * it after its changes are applied, commits of such transactions are serialized by this lock.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@Profile("hybrid")
+@RequiredArgsConstructor
+public class WidgetIndexMirror {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final WidgetJpaRepository widgetJpaRepository;
+
+    private final WidgetInMemoryRepository widgetIndex;
+
+    private final Lock commitLock = new ReentrantLock();
+
+    @PostConstruct
+    void load() {
+        widgetIndex.deleteAll();
+        List<WidgetEntity> page = widgetJpaRepository.findAllFromZIndex(Integer.MIN_VALUE,
+            PageRequest.of(0, LOAD_PAGE_SIZE));
+        long loaded = 0;
+        while (!page.isEmpty()) {
+            widgetIndex.putAll(toWidgets(page));
+            loaded += page.size();
+            int lastZIndex = page.get(page.size() - 1).getZIndex();
+            page = lastZIndex == Integer.MAX_VALUE
+                ? List.of()
+                : widgetJpaRepository.findAllFromZIndex(lastZIndex + 1, PageRequest.of(0, LOAD_PAGE_SIZE));
+        }
+        log.info("Widget index loaded with {} widgets", loaded);
+    }
+
+    public List<Long> findAll(SearchAreaDto searchAreaDto) {
+        return toIds(widgetIndex.findAll(searchAreaDto));
+    }
+
+    public List<Long> findAll(Integer page, Integer size, SearchAreaDto searchAreaDto) {
+        return toIds(widgetIndex.findAll(page, size, searchAreaDto));
+    }
+
+    /**
+     * Mirrored widgets, ids and z indexes only are meant to be used: a cursor must follow these z indexes,
+     * the database may no longer have some of the ids.
+     */
+    public List<Widget> findAllFromZIndex(int zIndex, int size, SearchAreaDto searchAreaDto) {
+        return widgetIndex.findAllFromZIndex(zIndex, size, searchAreaDto);
+    }
+
+    /**
+     * Passes ids in the area to the consumer in z order, {@code chunkSize} at a time, until the mirror has no more.
+     */
+    public void forEachChunk(SearchAreaDto searchAreaDto, int chunkSize, Consumer<List<Long>> chunkConsumer) {
+        int zIndex = Integer.MIN_VALUE;
+        while (true) {
+            List<Widget> chunk = widgetIndex.findAllFromZIndex(zIndex, chunkSize, searchAreaDto);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunkConsumer.accept(toIds(chunk));
+            int lastZIndex = chunk.get(chunk.size() - 1).getZIndex();
+            if (lastZIndex == Integer.MAX_VALUE) {
+                return;
+            }
+            zIndex = lastZIndex + 1;
+        }
+    }
+
+    public List<Long> toIds(List<Widget> widgets) {
+        return widgets.stream()
+            .map(Widget::getId)
+            .collect(Collectors.toList());
+    }
+
+    public void saved(List<WidgetEntity> widgetEntities) {
+        List<Widget> widgets = toWidgets(widgetEntities);
+        afterCommit(() -> widgetIndex.putAll(widgets));
+    }
+
+    public void shifted(int zIndexStart, int zIndexEnd, int shift) {
+        afterCommit(() -> widgetIndex.shift(zIndexStart, zIndexEnd, shift));
+    }
+
+    public void deleted(WidgetEntity widgetEntity) {
+        long id = widgetEntity.getId();
+        afterCommit(() -> widgetIndex.deleteById(id));
+    }
+
+    public void deletedAll() {
+        afterCommit(widgetIndex::deleteAll);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.lock();
+            try {
+                change.run();
+            } finally {
+                commitLock.unlock();
+            }
+            return;
+        }
+        PendingChanges pendingChanges = (PendingChanges)TransactionSynchronizationManager.getResource(this);
+        if (pendingChanges == null) {
+            pendingChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pendingChanges);
+            TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+        }
+        pendingChanges.changes.add(change);
+    }
+
+    private List<Widget> toWidgets(List<WidgetEntity> widgetEntities) {
+        return widgetEntities.stream()
+            .map(widgetEntity -> Widget.builder()
+                .id(widgetEntity.getId())
+                .xPoint(widgetEntity.getXPoint())
+                .yPoint(widgetEntity.getYPoint())
+                .zIndex(widgetEntity.getZIndex())
+                .width(widgetEntity.getWidth())
+                .height(widgetEntity.getHeight())
+                .modificationDate(widgetEntity.getModificationDate())
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Changes of one transaction, applied in order after it commits while {@code commitLock} is held.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<Runnable> changes = new ArrayList<>();
+
+        private boolean locked;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitLock.lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            changes.forEach(Runnable::run);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(WidgetIndexMirror.this);
+            if (locked) {
+                locked = false;
+                commitLock.unlock();
+            }
+        }
+    }
+}
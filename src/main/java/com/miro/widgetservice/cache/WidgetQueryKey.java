@@ -0,0 +1,22 @@
+package com.miro.widgetservice.cache;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Ordered listing: whole (no page and size), offset page ({@code page} and {@code size})
+ * or cursor page ({@code fromZIndex} and {@code size}). {@code area} is {@code null} for the whole board.
+ */
+@Value
+@Builder
+public class WidgetQueryKey {
+
+    Integer page;
+
+    Integer size;
+
+    Integer fromZIndex;
+
+    SearchAreaDto area;
+}
@@ -0,0 +1,45 @@
+package com.miro.widgetservice.config;
+
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Training run of the {@code cds} Maven profile: once the service is up it goes through the usual requests,
+ * so their classes get into the dynamic CDS archive dumped at exit, and exits.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "widget.startup.training-run", havingValue = "true")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        int port = ((WebServerApplicationContext)event.getApplicationContext()).getWebServer().getPort();
+        String widgets = "http://localhost:" + port + "/api/v1/widget";
+        RestTemplate restTemplate = new RestTemplate();
+        Map<String, Object> widget = Map.of("xpoint", 0, "ypoint", 0, "width", 10, "height", 10);
+
+        Map<?, ?> created = restTemplate.postForObject(widgets, widget, Map.class);
+        Object id = created.get("id");
+        restTemplate.postForObject(widgets + "/batch", List.of(widget, widget), List.class);
+        restTemplate.put(widgets + "/" + id, Map.of("xpoint", 5, "ypoint", 5, "zindex", 0, "width", 10, "height", 10));
+        restTemplate.getForObject(widgets + "/" + id, Map.class);
+        restTemplate.getForObject(widgets, List.class);
+        restTemplate.getForObject(widgets + "?page=0&size=10", List.class);
+        restTemplate.getForObject(widgets + "?xPoint1=0&yPoint1=0&xPoint2=100&yPoint2=100", List.class);
+        restTemplate.getForObject(widgets + "?cursor=&size=10", Map.class);
+        restTemplate.getForObject(widgets + "?stream=true", List.class);
+        restTemplate.delete(widgets + "/" + id);
+
+        log.info("Training run finished, exiting");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.miro.widgetservice.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Skips Liquibase at startup when the changelog files are the same as at the last successful update.
+ * The SHA-256 of every file next to the master changelog and below it is kept in {@code schema_hash},
+ * without the table (new database) Liquibase runs as usual.
+ */
+@Slf4j
+@Component
+@Profile("database")
+@ConditionalOnProperty(name = "widget.database.liquibase.skip-unchanged", havingValue = "true")
+public class LiquibaseHashCheck implements BeanPostProcessor {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private String changeLogHash;
+
+    private boolean skipped;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof SpringLiquibase) {
+            SpringLiquibase liquibase = (SpringLiquibase)bean;
+            changeLogHash = hash(liquibase.getChangeLog());
+            if (changeLogHash.equals(storedHash(liquibase))) {
+                log.info("Changelog hash {} is applied, skipping Liquibase", changeLogHash);
+                liquibase.setShouldRun(false);
+                skipped = true;
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof SpringLiquibase && !skipped) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(((SpringLiquibase)bean).getDataSource());
+            jdbcTemplate.update("delete from schema_hash");
+            jdbcTemplate.update("insert into schema_hash (hash) values (?)", changeLogHash);
+        }
+        return bean;
+    }
+
+    private String storedHash(SpringLiquibase liquibase) {
+        try {
+            List<String> hashes = new JdbcTemplate(liquibase.getDataSource())
+                .queryForList("select hash from schema_hash", String.class);
+            return hashes.size() == 1 ? hashes.get(0) : null;
+        } catch (DataAccessException exception) {
+            log.info("No applied changelog hash: {}", exception.getMostSpecificCause().getMessage());
+            return null;
+        }
+    }
+
+    private String hash(String changeLog) {
+        String location = StringUtils.trimLeadingCharacter(
+            changeLog.startsWith(CLASSPATH_PREFIX) ? changeLog.substring(CLASSPATH_PREFIX.length()) : changeLog, '/');
+        String directory = location.contains("/") ? location.substring(0, location.lastIndexOf('/') + 1) : "";
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources(CLASSPATH_PREFIX + directory + "**/*.xml");
+            Arrays.sort(resources, Comparator.comparing(resource -> relativePath(resource, directory)));
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource resource : resources) {
+                digest.update(relativePath(resource, directory).getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = resource.getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+            return toHex(digest.digest());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private String relativePath(Resource resource, String directory) {
+        try {
+            String url = resource.getURL().toString();
+            return directory.isEmpty() ? url : url.substring(url.lastIndexOf(directory));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.miro.widgetservice.config;
+
+import com.miro.widgetservice.struct.ShardTiling;
+import com.miro.widgetservice.struct.ShardedStorage;
+import com.miro.widgetservice.struct.SpatialIndex;
+import com.miro.widgetservice.struct.SpatialIndexFactory;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class SpatialIndexConfig {
+
+    @Bean
+    public SpatialIndexFactory spatialIndexFactory(
+        @Value("${widget.memory.spatial-index:int-rtree}") String type,
+        @Value("${widget.memory.grid.cell-size:256}") int gridCellSize,
+        @Value("${widget.memory.grid.max-cells-per-widget:64}") int gridMaxCellsPerWidget,
+        @Value("${widget.memory.quadtree.node-capacity:16}") int quadTreeNodeCapacity,
+        @Value("${widget.memory.quadtree.max-depth:24}") int quadTreeMaxDepth) {
+
+        return SpatialIndexFactory.builder()
+            .type(type)
+            .gridCellSize(gridCellSize)
+            .gridMaxCellsPerWidget(gridMaxCellsPerWidget)
+            .quadTreeNodeCapacity(quadTreeNodeCapacity)
+            .quadTreeMaxDepth(quadTreeMaxDepth)
+            .build();
+    }
+
+    @Bean
+    public ShardTiling shardTiling(
+        @Value("${widget.memory.shards.columns:1}") int columns,
+        @Value("${widget.memory.shards.rows:1}") int rows,
+        @Value("${widget.memory.shards.tile-width:4096}") int tileWidth,
+        @Value("${widget.memory.shards.tile-height:4096}") int tileHeight,
+        @Value("${widget.memory.shards.origin-x:0}") int originX,
+        @Value("${widget.memory.shards.origin-y:0}") int originY) {
+
+        if (columns <= 0 || rows <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("Shard columns, rows and tile size must be positive");
+        }
+        return ShardTiling.builder()
+            .columns(columns)
+            .rows(rows)
+            .tileWidth(tileWidth)
+            .tileHeight(tileHeight)
+            .originX(originX)
+            .originY(originY)
+            .build();
+    }
+
+    @Bean
+    public Supplier<SpatialIndex> coordinateStorageFactory(SpatialIndexFactory spatialIndexFactory, ShardTiling shardTiling) {
+        if (shardTiling.getShardCount() == 1) {
+            log.info("Spatial index: {}", spatialIndexFactory.getType());
+            return spatialIndexFactory::create;
+        }
+        log.info("Spatial index: {} in {}x{} shards", spatialIndexFactory.getType(), shardTiling.getColumns(),
+            shardTiling.getRows());
+        return () -> new ShardedStorage(spatialIndexFactory::create, shardTiling);
+    }
+}
@@ -0,0 +1,59 @@
+package com.miro.widgetservice.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs Tomcat request processing, async IO callbacks included, on a virtual thread per task instead of
+ * the worker pool, {@code server.tomcat.threads.*} no longer apply. Requests blocked on a lock or JDBC
+ * park their virtual thread and free the carrier.
+ * <p>
+ * Without the pool nothing bounds requests in flight, {@code widget.virtual-threads.max-concurrent-requests}
+ * above 0 makes the rest wait for a permit (parked as well) instead of piling up on the connection pool.
+ * The executor is not a bean, so it does not replace the {@code applicationTaskExecutor} of Spring Boot.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "widget.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements DisposableBean {
+
+    private final ExecutorService virtualThreads =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virtual-", 0).factory());
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadCustomizer(
+        @Value("${widget.virtual-threads.max-concurrent-requests:0}") int maxConcurrentRequests) {
+
+        return protocolHandler -> {
+            log.info("Tomcat requests run on virtual threads, at most {} at once",
+                maxConcurrentRequests > 0 ? maxConcurrentRequests : "unlimited");
+            protocolHandler.setExecutor(maxConcurrentRequests > 0 ? limited(maxConcurrentRequests) : virtualThreads);
+        };
+    }
+
+    @Override
+    public void destroy() {
+        virtualThreads.shutdown();
+    }
+
+    private Executor limited(int maxConcurrentRequests) {
+        Semaphore permits = new Semaphore(maxConcurrentRequests);
+        return task -> virtualThreads.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+}
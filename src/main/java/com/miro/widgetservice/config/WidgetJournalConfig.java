@@ -0,0 +1,38 @@
+package com.miro.widgetservice.config;
+
+import com.miro.widgetservice.repository.memory.WidgetJournal;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Slf4j
+@Configuration
+@Profile("memory")
+@ConditionalOnProperty(name = "widget.memory.journal.enabled", havingValue = "true")
+public class WidgetJournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public WidgetJournal widgetJournal(
+        @Value("${widget.memory.journal.directory:data/journal}") Path directory,
+        @Value("${widget.memory.journal.fsync:always}") String fsync,
+        @Value("${widget.memory.journal.fsync-interval-ms:100}") long fsyncIntervalMillis,
+        @Value("${widget.memory.journal.snapshot-records:100000}") long snapshotRecords) {
+
+        if (fsyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Journal fsync interval must be positive");
+        }
+        WidgetJournal.Fsync fsyncPolicy = WidgetJournal.Fsync.valueOf(fsync.toUpperCase());
+        log.info("Widget journal in {}, fsync {}, snapshot every {} records", directory.toAbsolutePath(),
+            fsyncPolicy, snapshotRecords);
+        return WidgetJournal.builder()
+            .directory(directory)
+            .fsync(fsyncPolicy)
+            .fsyncIntervalMillis(fsyncIntervalMillis)
+            .snapshotRecords(snapshotRecords)
+            .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.miro.widgetservice.config;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.service.WidgetService;
+import com.miro.widgetservice.util.WidgetUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Times every {@link WidgetService} method of both implementations as {@code widget.service}
+ * (tags {@code method}, {@code implementation} - profile of the implementation, {@code exception}) and records
+ * the number of widgets returned for a search area as {@code widget.area.results}.
+ * Percentiles and histogram buckets are configured by {@code management.metrics.distribution.*}.
+ */
+@Component
+public class WidgetServiceMetrics extends AbstractAdvisingBeanPostProcessor {
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ObjectProvider<WidgetUtil> widgetUtil;
+
+    public WidgetServiceMetrics(ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<WidgetUtil> widgetUtil) {
+        this.meterRegistry = meterRegistry;
+        this.widgetUtil = widgetUtil;
+        this.advisor = new DefaultPointcutAdvisor(new WidgetServicePointcut(), (MethodInterceptor)this::invoke);
+        // outside of the transaction interceptor, so commit time is counted as well
+        setBeforeExistingAdvisors(true);
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry registry = meterRegistry.getObject();
+        String method = invocation.getMethod().getName();
+        String implementation = implementation(invocation);
+        SearchAreaDto searchAreaDto = searchArea(invocation.getArguments());
+        AtomicInteger streamed = new AtomicInteger();
+        if (searchAreaDto != null) {
+            wrapConsumer(invocation.getArguments(), streamed);
+        }
+
+        String exception = NO_EXCEPTION;
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            Object result = invocation.proceed();
+            if (searchAreaDto != null) {
+                DistributionSummary.builder("widget.area.results")
+                    .baseUnit("widgets")
+                    .tag("method", method)
+                    .tag("implementation", implementation)
+                    .register(registry)
+                    .record(resultSize(result, streamed));
+            }
+            return result;
+        } catch (Throwable throwable) {
+            exception = throwable.getClass().getSimpleName();
+            throw throwable;
+        } finally {
+            sample.stop(Timer.builder("widget.service")
+                .tag("method", method)
+                .tag("implementation", implementation)
+                .tag("exception", exception)
+                .register(registry));
+        }
+    }
+
+    private SearchAreaDto searchArea(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof SearchAreaDto && widgetUtil.getObject().isSearchDtoValid((SearchAreaDto)argument)) {
+                return (SearchAreaDto)argument;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void wrapConsumer(Object[] arguments, AtomicInteger streamed) {
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Consumer) {
+                Consumer<WidgetRespDto> consumer = (Consumer<WidgetRespDto>)arguments[i];
+                arguments[i] = (Consumer<WidgetRespDto>)widget -> {
+                    streamed.incrementAndGet();
+                    consumer.accept(widget);
+                };
+            }
+        }
+    }
+
+    private int resultSize(Object result, AtomicInteger streamed) {
+        if (result instanceof List) {
+            return ((List<?>)result).size();
+        }
+        if (result instanceof WidgetPageDto) {
+            return ((WidgetPageDto)result).getWidgets().size();
+        }
+        return streamed.get();
+    }
+
+    private String implementation(MethodInvocation invocation) {
+        Class<?> targetClass = invocation.getThis() != null ? invocation.getThis().getClass() : WidgetService.class;
+        Profile profile = AnnotationUtils.findAnnotation(targetClass, Profile.class);
+        return profile != null ? String.join(",", profile.value()) : targetClass.getSimpleName();
+    }
+
+    private static class WidgetServicePointcut extends StaticMethodMatcherPointcut {
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return WidgetService.class::isAssignableFrom;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return ReflectionUtils.findMethod(WidgetService.class, method.getName(), method.getParameterTypes()) != null;
+        }
+    }
+}
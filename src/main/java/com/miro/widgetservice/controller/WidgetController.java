@@ -1,37 +1,87 @@
 package com.miro.widgetservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
 import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.service.WidgetService;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import static com.miro.widgetservice.config.WireFormatConfig.APPLICATION_SMILE;
+
+@Validated
 @RestController
 @RequestMapping(path = "api/v1")
 @RequiredArgsConstructor
 public class WidgetController {
 
+    // the largest page the service accepts
+    private static final int LINE_PAGE_SIZE = 500;
+
+    private static final long LINE_STREAM_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
     private final WidgetService widgetService;
 
+    private final ObjectMapper objectMapper;
+
+    private final MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
+    private ObjectWriter widgetWriter;
+
+    private ObjectWriter smileWidgetWriter;
+
+    @PostConstruct
+    void init() {
+        widgetWriter = objectMapper.writerFor(WidgetRespDto.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        smileWidgetWriter = smileHttpMessageConverter.getObjectMapper().writerFor(WidgetRespDto.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
     @PostMapping("/widget")
     @ResponseStatus(HttpStatus.CREATED)
     public WidgetRespDto createWidget(@RequestBody @Valid WidgetReqDto widgetReqDto) {
         return widgetService.create(widgetReqDto);
     }
 
+    /**
+     * Creates widgets as if they were posted one by one, returns them in the same order with final z indexes.
+     */
+    @PostMapping("/widget/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<WidgetRespDto> createWidgets(@RequestBody List<@Valid WidgetReqDto> widgetReqDtos) {
+        return widgetService.saveAll(widgetReqDtos);
+    }
+
     @PutMapping("/widget/{id}")
     @ResponseStatus(HttpStatus.OK)
     public WidgetRespDto updateWidget(@PathVariable Long id, @RequestBody @Valid WidgetReqDto widgetReqDto) {
@@ -62,9 +112,100 @@ public class WidgetController {
         return widgetService.findAll(page, size, searchAreaDto);
     }
 
+    /**
+     * Same widgets as the unpaged listing, written to the response while they are read from the store,
+     * so the listing is never held in memory.
+     */
+    @GetMapping(value = "/widget", params = "stream=true")
+    public void streamAllWidgets(@RequestParam(required = false) Integer xPoint1,
+        @RequestParam(required = false) Integer yPoint1,
+        @RequestParam(required = false) Integer xPoint2,
+        @RequestParam(required = false) Integer yPoint2,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        HttpServletResponse response) throws IOException {
+
+        SearchAreaDto searchAreaDto = SearchAreaDto.builder()
+            .xPoint1(xPoint1)
+            .yPoint1(yPoint1)
+            .xPoint2(xPoint2)
+            .yPoint2(yPoint2)
+            .build();
+
+        boolean smile = isSmileAccepted(accept);
+        ObjectWriter writer = smile ? smileWidgetWriter : widgetWriter;
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(smile ? APPLICATION_SMILE.toString() : MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = writer.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            widgetService.forEach(searchAreaDto, widget -> write(writer, generator, widget));
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Same widgets as the streamed listing, one JSON object per line, read in cursor pages of
+     * {@value #LINE_PAGE_SIZE} and written with non-blocking IO (see {@link WidgetLineWriter}).
+     * The request thread returns right away. Like cursor pages, the result is not a snapshot.
+     */
+    @GetMapping(value = "/widget", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamWidgetLines(@RequestParam(required = false) Integer xPoint1,
+        @RequestParam(required = false) Integer yPoint1,
+        @RequestParam(required = false) Integer xPoint2,
+        @RequestParam(required = false) Integer yPoint2,
+        HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+
+        SearchAreaDto searchAreaDto = SearchAreaDto.builder()
+            .xPoint1(xPoint1)
+            .yPoint1(yPoint1)
+            .xPoint2(xPoint2)
+            .yPoint2(yPoint2)
+            .build();
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(LINE_STREAM_TIMEOUT_MILLIS);
+        ServletOutputStream outputStream = response.getOutputStream();
+        outputStream.setWriteListener(new WidgetLineWriter(asyncContext, outputStream, widgetWriter,
+            cursor -> widgetService.findPage(cursor, LINE_PAGE_SIZE, searchAreaDto)));
+    }
+
+    @GetMapping(value = "/widget", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public WidgetPageDto getWidgetPage(@RequestParam String cursor, @RequestParam(required = false) Integer size,
+        @RequestParam(required = false) Integer xPoint1,
+        @RequestParam(required = false) Integer yPoint1,
+        @RequestParam(required = false) Integer xPoint2,
+        @RequestParam(required = false) Integer yPoint2) {
+
+        SearchAreaDto searchAreaDto = SearchAreaDto.builder()
+            .xPoint1(xPoint1)
+            .yPoint1(yPoint1)
+            .xPoint2(xPoint2)
+            .yPoint2(yPoint2)
+            .build();
+
+        return widgetService.findPage(cursor, size, searchAreaDto);
+    }
+
     @DeleteMapping("/widget/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteWidget(@PathVariable Long id) {
         widgetService.deleteById(id);
     }
+
+    private boolean isSmileAccepted(String accept) {
+        return accept != null && MediaType.parseMediaTypes(accept).stream()
+            .anyMatch(mediaType -> mediaType.isConcrete() && mediaType.isCompatibleWith(APPLICATION_SMILE));
+    }
+
+    private void write(ObjectWriter writer, JsonGenerator generator, WidgetRespDto widget) {
+        try {
+            writer.writeValue(generator, widget);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
 }
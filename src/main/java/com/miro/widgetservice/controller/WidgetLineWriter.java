@@ -0,0 +1,65 @@
+package com.miro.widgetservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.miro.widgetservice.dto.WidgetPageDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.function.Function;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes cursor pages as NDJSON, one widget per line, with non-blocking servlet output. The next page is read
+ * only when the container has taken the previous one, so a slow client costs one page of memory and no thread.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class WidgetLineWriter implements WriteListener {
+
+    private static final int LINE_SEPARATOR = '\n';
+
+    private final AsyncContext asyncContext;
+
+    private final ServletOutputStream outputStream;
+
+    private final ObjectWriter widgetWriter;
+
+    /**
+     * Page after the cursor, an empty cursor is the first page.
+     */
+    private final Function<String, WidgetPageDto> pages;
+
+    private String cursor = "";
+
+    @Override
+    public void onWritePossible() throws IOException {
+        while (outputStream.isReady()) {
+            if (cursor == null) {
+                asyncContext.complete();
+                return;
+            }
+            WidgetPageDto page = pages.apply(cursor);
+            outputStream.write(toLines(page));
+            cursor = page.getNextCursor();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.warn("Widget line stream failed after cursor {}", cursor, throwable);
+        asyncContext.complete();
+    }
+
+    private byte[] toLines(WidgetPageDto page) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (WidgetRespDto widget : page.getWidgets()) {
+            widgetWriter.writeValue(lines, widget);
+            lines.write(LINE_SEPARATOR);
+        }
+        return lines.toByteArray();
+    }
+}
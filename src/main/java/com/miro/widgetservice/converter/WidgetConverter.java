@@ -4,29 +4,56 @@ import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.model.Widget;
 import com.miro.widgetservice.model.WidgetEntity;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
+/**
+ * Copies fields with the same names. Fields missing in the source, such as the id of a request,
+ * stay {@code null}.
+ */
 @Component
-@RequiredArgsConstructor
 public class WidgetConverter {
 
-    private final ModelMapper modelMapper;
-
     public WidgetRespDto convert(Widget widget) {
-        return modelMapper.map(widget, WidgetRespDto.class);
+        return WidgetRespDto.builder()
+            .id(widget.getId())
+            .xPoint(widget.getXPoint())
+            .yPoint(widget.getYPoint())
+            .zIndex(widget.getZIndex())
+            .width(widget.getWidth())
+            .height(widget.getHeight())
+            .modificationDate(widget.getModificationDate())
+            .build();
     }
 
     public Widget convert(WidgetReqDto widgetReqDto) {
-        return modelMapper.map(widgetReqDto, Widget.class);
+        return Widget.builder()
+            .xPoint(widgetReqDto.getXPoint())
+            .yPoint(widgetReqDto.getYPoint())
+            .zIndex(widgetReqDto.getZIndex())
+            .width(widgetReqDto.getWidth())
+            .height(widgetReqDto.getHeight())
+            .build();
     }
 
     public WidgetEntity convertEntity(WidgetReqDto widgetReqDto) {
-        return modelMapper.map(widgetReqDto, WidgetEntity.class);
+        return WidgetEntity.builder()
+            .xPoint(widgetReqDto.getXPoint())
+            .yPoint(widgetReqDto.getYPoint())
+            .zIndex(widgetReqDto.getZIndex())
+            .width(widgetReqDto.getWidth())
+            .height(widgetReqDto.getHeight())
+            .build();
     }
 
     public WidgetRespDto convertEntity(WidgetEntity widgetEntity) {
-        return modelMapper.map(widgetEntity, WidgetRespDto.class);
+        return WidgetRespDto.builder()
+            .id(widgetEntity.getId())
+            .xPoint(widgetEntity.getXPoint())
+            .yPoint(widgetEntity.getYPoint())
+            .zIndex(widgetEntity.getZIndex())
+            .width(widgetEntity.getWidth())
+            .height(widgetEntity.getHeight())
+            .modificationDate(widgetEntity.getModificationDate())
+            .build();
     }
 }
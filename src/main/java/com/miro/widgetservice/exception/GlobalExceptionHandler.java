@@ -4,6 +4,8 @@ import com.miro.widgetservice.dto.ValidationDto;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.FieldError;
@@ -49,6 +51,29 @@ public class GlobalExceptionHandler {
             .build();
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ValidationDto handleConstraintViolation(ConstraintViolationException exception) {
+        log.debug("Object validation failed", exception);
+
+        Map<String, String> validationErrorsMap = exception.getConstraintViolations()
+            .stream()
+            .collect(
+                Collectors.toMap(
+                    violation -> violation.getPropertyPath().toString(),
+                    ConstraintViolation::getMessage,
+                    (left, right) -> left
+                )
+            );
+
+        return ValidationDto.builder()
+            .success(false)
+            .errorMessage("Invalid request")
+            .payload(validationErrorsMap)
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(Exception.class)
     public String handleGlobalException(Exception exception) {
@@ -0,0 +1,73 @@
+package com.miro.widgetservice.jfr;
+
+import java.util.function.LongConsumer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.miro.widgetservice.AreaSearch")
+@Label("Area Search")
+@Category({"Widget Service", "Storage"})
+@Description("Search of widgets inside a rectangle")
+@Threshold("1 ms")
+@StackTrace(false)
+public class AreaSearchEvent extends Event {
+
+    @Label("Source")
+    @Description("Spatial index class or the repository answering the search")
+    String source;
+
+    @Label("Min X")
+    int minX;
+
+    @Label("Min Y")
+    int minY;
+
+    @Label("Max X")
+    int maxX;
+
+    @Label("Max Y")
+    int maxY;
+
+    @Label("Candidates")
+    @Description("Entries examined by the search")
+    long candidates;
+
+    @Label("Results")
+    long results;
+
+    /**
+     * Counts reported ids when the event is enabled, otherwise returns the consumer as is.
+     */
+    public LongConsumer counting(LongConsumer consumer) {
+        if (!isEnabled()) {
+            return consumer;
+        }
+        return id -> {
+            results++;
+            consumer.accept(id);
+        };
+    }
+
+    public void finish(String source, int minX, int minY, int maxX, int maxY, long candidates) {
+        end();
+        if (shouldCommit()) {
+            this.source = source;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.candidates = candidates;
+            commit();
+        }
+    }
+
+    public void finish(String source, int minX, int minY, int maxX, int maxY, long candidates, long results) {
+        this.results = results;
+        finish(source, minX, minY, maxX, maxY, candidates);
+    }
+}
@@ -0,0 +1,24 @@
+package com.miro.widgetservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.miro.widgetservice.LockWait")
+@Label("Lock Wait")
+@Category({"Widget Service", "Locks"})
+@Description("Time a thread waited to acquire a storage lock")
+@Threshold("1 ms")
+public class LockWaitEvent extends Event {
+
+    @Label("Lock")
+    @Description("Class of the lock owner")
+    String lock;
+
+    @Label("Mode")
+    @Description("read or write")
+    String mode;
+}
@@ -0,0 +1,69 @@
+package com.miro.widgetservice.jfr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock that reports blocking acquisitions as {@link LockWaitEvent}. With the event disabled
+ * the event object is not even allocated after JIT, so the lock costs the same as the one it wraps.
+ */
+public final class RecordedLock implements Lock {
+
+    private final Lock lock;
+
+    private final String name;
+
+    private final String mode;
+
+    public RecordedLock(Lock lock, String name, String mode) {
+        this.lock = lock;
+        this.name = name;
+        this.mode = mode;
+    }
+
+    @Override
+    public void lock() {
+        LockWaitEvent event = new LockWaitEvent();
+        event.begin();
+        lock.lock();
+        commit(event);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        LockWaitEvent event = new LockWaitEvent();
+        event.begin();
+        lock.lockInterruptibly();
+        commit(event);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return lock.tryLock(time, unit);
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return lock.newCondition();
+    }
+
+    private void commit(LockWaitEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.lock = name;
+            event.mode = mode;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.miro.widgetservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.miro.widgetservice.ZIndexShift")
+@Label("Z-Index Shift")
+@Category({"Widget Service", "Storage"})
+@Description("A run of widgets moved to free or close a z index")
+@Threshold("1 ms")
+@StackTrace(false)
+public class ZIndexShiftEvent extends Event {
+
+    @Label("Implementation")
+    @Description("memory or database")
+    String implementation;
+
+    @Label("From Z-Index")
+    int fromZIndex;
+
+    @Label("To Z-Index")
+    int toZIndex;
+
+    @Label("Shift")
+    int shift;
+
+    @Label("Widgets")
+    @Description("Number of widgets moved")
+    int widgets;
+
+    public ZIndexShiftEvent(String implementation) {
+        this.implementation = implementation;
+    }
+
+    /**
+     * Sets the moved run; called before {@link #commit()} whether the event is enabled or not,
+     * the values are kept for metrics.
+     */
+    public void shifted(int fromZIndex, int toZIndex, int shift, int widgets) {
+        this.fromZIndex = fromZIndex;
+        this.toZIndex = toZIndex;
+        this.shift = shift;
+        this.widgets = widgets;
+    }
+
+    public int getWidgets() {
+        return widgets;
+    }
+}
@@ -1,5 +1,6 @@
 package com.miro.widgetservice.model;
 
+import com.miro.widgetservice.util.MortonCode;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import javax.persistence.Column;
@@ -10,6 +11,7 @@ import javax.persistence.Id;
 import javax.persistence.Index;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,7 +24,10 @@ import lombok.ToString;
 @Table(name = "WIDGETS",
     indexes = {@Index(
         name = "COORDINATE_INDEX",
-        columnList = "xPoint,yPoint,xPoint2,yPoint2")})
+        columnList = "xPoint,yPoint,xPoint2,yPoint2"),
+        @Index(
+            name = "MORTON_INDEX",
+            columnList = "mortonKey")})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -32,7 +37,8 @@ import lombok.ToString;
 public class WidgetEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "widgets_seq")
+    @SequenceGenerator(name = "widgets_seq", sequenceName = "widgets_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -59,11 +65,18 @@ public class WidgetEntity {
     @Column(nullable = false)
     private LocalDateTime modificationDate;
 
+    /**
+     * {@link MortonCode#key} of the lower left corner, area search scans key ranges of the area.
+     */
+    @Column(nullable = false)
+    private Long mortonKey;
+
     @PrePersist
     @PreUpdate
     private void prepareEntity() {
         setXPoint2(getXPoint() + getWidth());
         setYPoint2(getYPoint() + getHeight());
+        setMortonKey(MortonCode.key(getXPoint(), getYPoint()));
         setModificationDate(LocalDateTime.now());
     }
 
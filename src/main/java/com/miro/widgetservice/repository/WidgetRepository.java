@@ -15,8 +15,12 @@ public interface WidgetRepository {
 
     List<Widget> findAll(SearchAreaDto searchAreaDto);
 
+    List<Widget> findAllFromZIndex(int zIndex, int size, SearchAreaDto searchAreaDto);
+
     Widget save(Widget widget);
 
+    List<Widget> saveAll(List<Widget> widgets);
+
     void deleteById(Long id);
 
     boolean isExist(Long id);
@@ -0,0 +1,59 @@
+package com.miro.widgetservice.repository.jpa;
+
+import com.miro.widgetservice.util.MortonCode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Fills {@code morton_key} of widgets stored before the column was added.
+ */
+public class MortonKeyBackfill implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        JdbcConnection connection = (JdbcConnection)database.getConnection();
+        try (Statement select = connection.createStatement();
+            ResultSet rows = select.executeQuery("select id, x_point, y_point from widgets");
+            PreparedStatement update = connection.prepareStatement("update widgets set morton_key = ? where id = ?")) {
+            int batched = 0;
+            while (rows.next()) {
+                update.setLong(1, MortonCode.key(rows.getInt(2), rows.getInt(3)));
+                update.setLong(2, rows.getLong(1));
+                update.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        } catch (Exception e) {
+            throw new CustomChangeException("Unable to fill morton_key", e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "morton_key filled";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -1,23 +1,39 @@
 package com.miro.widgetservice.repository.jpa;
 
-import com.miro.widgetservice.dto.SearchAreaDto;
 import com.miro.widgetservice.model.WidgetEntity;
 import java.util.List;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
-public interface WidgetJpaRepository extends JpaRepository<WidgetEntity, Long> {
+public interface WidgetJpaRepository extends JpaRepository<WidgetEntity, Long>, WidgetJpaRepositoryCustom {
 
     @Modifying
     @Query("update WidgetEntity w set w.zIndex = w.zIndex + 1, w.modificationDate = current_timestamp "
         + "where w.zIndex >=:zIndexStart and w.zIndex <= :zIndexEnd")
     Integer incrementFromIndexToIndex(Integer zIndexStart, Integer zIndexEnd);
 
-    @Query("select w from WidgetEntity w where w.zIndex >= :zIndex order by w.zIndex asc")
-    List<WidgetEntity> findAllWithEqualOrGreaterZIndex(Integer zIndex);
+    @Modifying
+    @Query("update WidgetEntity w set w.zIndex = w.zIndex + :shift, w.modificationDate = current_timestamp "
+        + "where w.zIndex >=:zIndexStart and w.zIndex <= :zIndexEnd")
+    Integer shiftFromIndexToIndex(Integer zIndexStart, Integer zIndexEnd, Integer shift);
+
+    @Query("select w.zIndex from WidgetEntity w where w.zIndex >= :zIndexStart and w.zIndex <= :zIndexEnd "
+        + "order by w.zIndex asc")
+    List<Integer> findZIndexesFromIndexToIndex(Integer zIndexStart, Integer zIndexEnd);
+
+    @Query("select min(w.zIndex) from WidgetEntity w where w.zIndex >= :zIndex")
+    Integer findMinZIndexFrom(Integer zIndex);
+
+    /**
+     * Z indexes from the given one that have no widget right above, the first one ends the contiguous run.
+     */
+    @Query("select w.zIndex from WidgetEntity w where w.zIndex >= :zIndex "
+        + "and (w.zIndex = 2147483647 "
+        + "or not exists (select n.id from WidgetEntity n where n.zIndex = w.zIndex + 1)) "
+        + "order by w.zIndex asc")
+    List<Integer> findZIndexesBeforeGap(Integer zIndex, Pageable pageable);
 
     @Query("select max(w.zIndex) FROM WidgetEntity w")
     Integer findMaxZIndex();
@@ -27,15 +43,6 @@ public interface WidgetJpaRepository extends JpaRepository<WidgetEntity, Long> {
 
     boolean existsByzIndex(Integer zIndex);
 
-    @Query("select w from WidgetEntity w where ((:#{#area.xPoint1} <= w.xPoint) "
-        + "and (:#{#area.xPoint2} >= w.xPoint2)) "
-        + "and ((:#{#area.yPoint1} <= w.yPoint) "
-        + "and (:#{#area.yPoint2} >= w.yPoint2)) order by w.zIndex asc")
-    List<WidgetEntity> findAll(@Param("area") SearchAreaDto searchAreaDto);
-
-    @Query(value = "select w from WidgetEntity w where ((:#{#area.xPoint1} <= w.xPoint) "
-        + "and (:#{#area.xPoint2} >= w.xPoint2)) "
-        + "and ((:#{#area.yPoint1} <= w.yPoint) "
-        + "and (:#{#area.yPoint2} >= w.yPoint2))")
-    List<WidgetEntity> findAll(@Param("area") SearchAreaDto searchAreaDto, Pageable pageable);
+    @Query("select w from WidgetEntity w where w.zIndex >= :zIndex order by w.zIndex asc")
+    List<WidgetEntity> findAllFromZIndex(Integer zIndex, Pageable pageable);
 }
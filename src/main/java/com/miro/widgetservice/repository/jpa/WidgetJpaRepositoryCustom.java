@@ -0,0 +1,21 @@
+package com.miro.widgetservice.repository.jpa;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.WidgetEntity;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Pageable;
+
+public interface WidgetJpaRepositoryCustom {
+
+    /**
+     * Widgets inside the area from the given z-index (all when {@code null}) ordered by z-index.
+     */
+    List<WidgetEntity> findAllInArea(SearchAreaDto searchAreaDto, Integer zIndex, Pageable pageable);
+
+    /**
+     * Passes widgets inside the area (all when {@code null}) to the consumer in z order while they are read with
+     * a JDBC cursor. Every widget is detached after the consumer, so the persistence context does not grow.
+     */
+    void forEach(SearchAreaDto searchAreaDto, Consumer<WidgetEntity> consumer);
+}
@@ -0,0 +1,87 @@
+package com.miro.widgetservice.repository.jpa;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.WidgetEntity;
+import com.miro.widgetservice.util.MortonCode;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Area search over {@code morton_key}: the area is split into a few key ranges, every range is an index range
+ * scan, exact containment filters out widgets of partially covered quadrants.
+ */
+public class WidgetJpaRepositoryCustomImpl implements WidgetJpaRepositoryCustom {
+
+    static final int MAX_RANGES = 16;
+
+    private static final int FETCH_SIZE = 1_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WidgetEntity> findAllInArea(SearchAreaDto searchAreaDto, Integer zIndex, Pageable pageable) {
+        Query query = createAreaQuery(searchAreaDto, zIndex);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int)pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(SearchAreaDto searchAreaDto, Consumer<WidgetEntity> consumer) {
+        Query query = Objects.isNull(searchAreaDto)
+            ? entityManager.createQuery("select w from WidgetEntity w order by w.zIndex asc")
+            : createAreaQuery(searchAreaDto, null);
+        query.setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE);
+
+        try (Stream<WidgetEntity> widgetEntities = query.getResultStream()) {
+            widgetEntities.forEach(widgetEntity -> {
+                consumer.accept(widgetEntity);
+                entityManager.detach(widgetEntity);
+            });
+        }
+    }
+
+    private Query createAreaQuery(SearchAreaDto searchAreaDto, Integer zIndex) {
+        long[] ranges = MortonCode.ranges(searchAreaDto.getXPoint1(), searchAreaDto.getYPoint1(),
+            searchAreaDto.getXPoint2(), searchAreaDto.getYPoint2(), MAX_RANGES);
+
+        StringBuilder sql = new StringBuilder("select * from (");
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i > 0) {
+                sql.append(" union all ");
+            }
+            sql.append("select w.* from widgets w where w.morton_key between :from").append(i)
+                .append(" and :to").append(i)
+                .append(" and w.x_point >= :xPoint1 and w.x_point2 <= :xPoint2")
+                .append(" and w.y_point >= :yPoint1 and w.y_point2 <= :yPoint2");
+            if (!Objects.isNull(zIndex)) {
+                sql.append(" and w.z_index >= :zIndex");
+            }
+        }
+        sql.append(") w order by w.z_index asc");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), WidgetEntity.class)
+            .setParameter("xPoint1", searchAreaDto.getXPoint1())
+            .setParameter("xPoint2", searchAreaDto.getXPoint2())
+            .setParameter("yPoint1", searchAreaDto.getYPoint1())
+            .setParameter("yPoint2", searchAreaDto.getYPoint2());
+        for (int i = 0; i < ranges.length; i += 2) {
+            query.setParameter("from" + i, ranges[i]).setParameter("to" + i, ranges[i + 1]);
+        }
+        if (!Objects.isNull(zIndex)) {
+            query.setParameter("zIndex", zIndex);
+        }
+        return query;
+    }
+}
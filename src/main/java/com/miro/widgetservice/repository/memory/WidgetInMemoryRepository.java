@@ -1,74 +1,114 @@
 package com.miro.widgetservice.repository.memory;
 
 import com.miro.widgetservice.dto.SearchAreaDto;
-import com.miro.widgetservice.exception.WidgetServiceException;
 import com.miro.widgetservice.model.Widget;
 import com.miro.widgetservice.repository.WidgetRepository;
-import com.miro.widgetservice.struct.RTreeStorage;
+import com.miro.widgetservice.struct.IndexStats;
+import com.miro.widgetservice.struct.LeftRight;
+import com.miro.widgetservice.struct.SpatialIndex;
 import com.miro.widgetservice.util.WidgetUtil;
-import java.time.LocalDateTime;
-import java.util.Collections;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import lombok.RequiredArgsConstructor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+/**
+ * Keeps two {@link WidgetReplica}s behind {@link LeftRight}: reads never lock and always see the state
+ * after some complete write, writes are serialized and applied to both replicas. Spatial indexes of the
+ * replicas are not locked either, see {@link SpatialIndex}.
+ * {@link Widget} objects are built only for the caller.
+ * With a {@link WidgetJournal} every write is logged in the order it is applied and the state is recovered
+ * from the journal on creation.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
+@Lazy(false)
+@Profile({"memory", "hybrid"})
 public class WidgetInMemoryRepository implements WidgetRepository {
 
     public static final int DEFAULT_PAGE_SIZE = 10;
 
-    private final AtomicLong atomicIdGenerator = new AtomicLong();
+    public static final int STREAM_CHUNK_SIZE = 1_000;
 
-    private final RTreeStorage coordinateStorage;
+    private final AtomicLong atomicIdGenerator = new AtomicLong();
 
     private final WidgetUtil widgetUtil;
 
-    private Map<Long, Widget> widgetStorage = new ConcurrentHashMap<>();
+    private final LeftRight<WidgetReplica> replicas;
+
+    private final Optional<WidgetJournal> widgetJournal;
 
-    private NavigableMap<Integer, Widget> zIndexStorage = new ConcurrentSkipListMap<>();
+    public WidgetInMemoryRepository(Supplier<SpatialIndex> coordinateStorageFactory, WidgetUtil widgetUtil) {
+        this(coordinateStorageFactory, widgetUtil, Optional.empty(), new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetInMemoryRepository(Supplier<SpatialIndex> coordinateStorageFactory, WidgetUtil widgetUtil,
+        Optional<WidgetJournal> widgetJournal, MeterRegistry meterRegistry) {
+        this.widgetUtil = widgetUtil;
+        this.widgetJournal = widgetJournal;
+        // every write is applied to both replicas, shifts are counted and reported to JFR on one of them
+        DistributionSummary shiftLengths = DistributionSummary.builder("widget.shift.length")
+            .baseUnit("widgets")
+            .tag("implementation", "memory")
+            .register(meterRegistry);
+        WidgetReplica left = new WidgetReplica(coordinateStorageFactory.get(), widgetUtil, shift -> {
+            shiftLengths.record(shift.getWidgets());
+            shift.commit();
+        });
+        WidgetReplica right = new WidgetReplica(coordinateStorageFactory.get(), widgetUtil, shift -> {
+        });
+        widgetJournal.ifPresent(journal -> recover(journal, left, right));
+        this.replicas = new LeftRight<>(left, right, writeTimings(meterRegistry));
+        registerGauges(meterRegistry);
+        widgetJournal.ifPresent(journal -> journal.start(this::snapshot));
+    }
 
     @Override
     public Widget save(Widget widget) {
-        if (Objects.isNull(widget.getId())) {
-            return persist(widget);
-        }
-        return merge(widget);
+        long newId = Objects.isNull(widget.getId()) ? atomicIdGenerator.incrementAndGet() : 0;
+        return write(replica -> replica.save(widget, newId), () -> WidgetJournalCodec.save(widget, newId));
+    }
+
+    @Override
+    public List<Widget> saveAll(List<Widget> widgets) {
+        long newWidgets = widgets.stream().filter(widget -> Objects.isNull(widget.getId())).count();
+        long firstNewId = atomicIdGenerator.getAndAdd(newWidgets) + 1;
+        return write(replica -> replica.saveAll(widgets, firstNewId),
+            () -> WidgetJournalCodec.saveAll(widgets, firstNewId));
     }
 
     @Override
     public Optional<Widget> findById(Long id) {
-        return Optional.ofNullable(widgetStorage.get(id));
+        return replicas.read(replica -> replica.findById(id));
     }
 
     @Override
     public List<Widget> findAll() {
-        return List.copyOf(zIndexStorage.values());
+        return replicas.read(WidgetReplica::findAll);
     }
 
     @Override
     public List<Widget> findAll(Integer page, Integer size, SearchAreaDto searchAreaDto) {
-        List<Widget> widgets = findAll(searchAreaDto);
-
-        int resultsPerPage = size == null ? DEFAULT_PAGE_SIZE : size;
-        int fromIndex = page * resultsPerPage;
-
-        if (widgets.isEmpty() || widgets.size() < fromIndex) {
-            log.info("Store is empty");
-            return Collections.emptyList();
-        }
+        return replicas.read(replica -> replica.findAll(page, size, searchAreaDto));
+    }
 
-        return widgets.subList(fromIndex, Math.min(fromIndex + resultsPerPage, widgets.size()));
+    @Override
+    public List<Widget> findAllFromZIndex(int zIndex, int size, SearchAreaDto searchAreaDto) {
+        return replicas.read(replica -> replica.findAllFromZIndex(zIndex, size, searchAreaDto));
     }
 
     @Override
@@ -76,127 +116,124 @@ public class WidgetInMemoryRepository implements WidgetRepository {
         if (!widgetUtil.isSearchDtoValid(searchAreaDto)) {
             return findAll();
         }
-
-        return coordinateStorage.findInArea(searchAreaDto);
+        return replicas.read(replica -> replica.findAll(searchAreaDto));
     }
 
     @Override
     public void deleteById(Long id) {
-        Widget widgetToRemove = widgetStorage.remove(id);
-        zIndexStorage.remove(widgetToRemove.getZIndex());
-        coordinateStorage.deleteIfExist(widgetToRemove);
+        write(replica -> replica.deleteById(id), () -> WidgetJournalCodec.deleteById(id));
     }
 
     @Override
     public boolean isExist(Long id) {
-        return widgetStorage.containsKey(id);
+        return replicas.read(replica -> replica.isExist(id));
     }
 
     @Override
     public void deleteAll() {
-        widgetStorage = new ConcurrentHashMap<>();
-        zIndexStorage = new ConcurrentSkipListMap<>();
-        coordinateStorage.deleteAll();
-    }
-
-    private Widget persist(Widget widget) {
-        Integer zIndex = widget.getZIndex();
-
-        if (Objects.isNull(zIndex)) {
-            zIndex = getLastIndex();
-            log.info("Z index is null. Generate new: {}", zIndex);
-        } else if (zIndexStorage.containsKey(zIndex)) {
-            log.info("Z index already exist. Shift and increment existed {}", zIndex);
-            shiftAndIncrement(zIndex);
-        }
-
-        widget.setId(atomicIdGenerator.incrementAndGet());
-        widget.setZIndex(zIndex);
-
-        return saveOrUpdate(widget);
-    }
-
-    private Widget merge(Widget widgetForUpdate) {
-        Widget savedWidget = widgetStorage.get(widgetForUpdate.getId());
-
-        Integer zIndex = widgetForUpdate.getZIndex();
-
-        if (Objects.isNull(zIndex)) {
-            if (isLastWidgetTheSameAsUpdate(widgetForUpdate)) {
-                zIndex = savedWidget.getZIndex();
-            } else {
-                zIndex = getLastIndex();
-            }
-            widgetForUpdate.setZIndex(zIndex);
-        }
-
-        return merge(widgetForUpdate, savedWidget);
-    }
-
-    private Widget merge(Widget widgetForUpdate, Widget savedWidget) {
-        if (isNewPosition(widgetForUpdate, savedWidget)) {
-            zIndexStorage.remove(savedWidget.getZIndex());
-            if (zIndexStorage.containsKey(widgetForUpdate.getZIndex())) {
-                shiftAndIncrement(widgetForUpdate.getZIndex());
-            }
-        }
-        return saveOrUpdate(widgetForUpdate);
+        write(WidgetReplica::deleteAll, WidgetJournalCodec::deleteAll);
     }
 
-    private Widget saveOrUpdate(Widget widget) {
-        widgetStorage.put(widget.getId(), widget);
-        zIndexStorage.put(widget.getZIndex(), widget);
-        coordinateStorage.putOrReplace(widget);
-        return widget;
+    /**
+     * Stores widgets with the ids and z indexes given by another store, see {@code WidgetIndexMirror}.
+     */
+    public void putAll(List<Widget> widgets) {
+        write(replica -> replica.putAll(widgets), () -> WidgetJournalCodec.putAll(widgets));
     }
 
-    private boolean isNewPosition(Widget widgetForUpdate, Widget savedWidget) {
-        return !widgetForUpdate.getZIndex().equals(savedWidget.getZIndex()) && widgetForUpdate.getId().equals(savedWidget.getId());
+    public void shift(int zIndexStart, int zIndexEnd, int shift) {
+        write(replica -> replica.shift(zIndexStart, zIndexEnd, shift),
+            () -> WidgetJournalCodec.shift(zIndexStart, zIndexEnd, shift));
     }
 
-    private boolean isLastWidgetTheSameAsUpdate(Widget widgetForUpdate) {
-        return zIndexStorage.lastEntry().getValue().getId().equals(widgetForUpdate.getId());
+    /**
+     * Writes a journal snapshot of the current state. Writes wait while the widgets are copied,
+     * the snapshot file is written without locks.
+     */
+    public void snapshot() {
+        WidgetJournal journal = widgetJournal.orElseThrow(() -> new IllegalStateException("No widget journal"));
+        journal.write(replicas.readExclusive(replica -> journal.rotate(atomicIdGenerator.get(), replica.findAll())));
     }
 
-    private int getLastIndex() {
-        if (zIndexStorage.isEmpty()) {
-            return 0;
+    /**
+     * Applies the change and, with a journal, appends its record under the write lock before the change is
+     * applied, so a change failing part-way is replayed and fails at the same point. Waits for the record
+     * to be durable after the lock is released, so concurrent writes share a sync.
+     */
+    private <R> R write(Function<WidgetReplica, R> change, Supplier<byte[]> record) {
+        if (widgetJournal.isEmpty()) {
+            return replicas.write(change);
         }
-        if (zIndexStorage.lastKey().equals(Integer.MAX_VALUE)) {
-            throw new WidgetServiceException("Z Index reach maximum");
+        WidgetJournal journal = widgetJournal.get();
+        byte[] encoded = record.get();
+        long[] appended = new long[1];
+        try {
+            return replicas.write(change, () -> appended[0] = journal.append(encoded));
+        } finally {
+            if (appended[0] > 0) {
+                journal.awaitDurable(appended[0]);
+            }
         }
-        return zIndexStorage.lastKey() + 1;
     }
 
-    private void shiftAndIncrement(Integer zIndex) {
-        SortedMap<Integer, Widget> tailMap = zIndexStorage.tailMap(zIndex);
-
-        if (tailMap.isEmpty()) {
-            log.info("Nothing to shift");
-            return;
-        }
-
-        Integer lastZIndex = widgetUtil.getLastZIndexWithoutGap(tailMap.keySet());
-        log.info("Last Z index in sequence {}", lastZIndex);
-
-        SortedMap<Integer, Widget> integerWidgetSortedMap = tailMap.subMap(zIndex, lastZIndex + 1);
-
-        integerWidgetSortedMap.values().forEach(w -> {
-            Integer newZIndex = w.getZIndex() + 1;
-            Widget widget = buildFromWidget(w, newZIndex);
-            saveOrUpdate(widget);
+    private LeftRight.WriteTimings writeTimings(MeterRegistry meterRegistry) {
+        Timer lockWait = Timer.builder("widget.lock.wait").tag("lock", "write").register(meterRegistry);
+        Timer readersWait = Timer.builder("widget.lock.wait").tag("lock", "readers").register(meterRegistry);
+        Timer lockHold = Timer.builder("widget.lock.hold").tag("lock", "write").register(meterRegistry);
+        return (lockWaitNanos, readersWaitNanos, lockHoldNanos) -> {
+            lockWait.record(lockWaitNanos, TimeUnit.NANOSECONDS);
+            readersWait.record(readersWaitNanos, TimeUnit.NANOSECONDS);
+            lockHold.record(lockHoldNanos, TimeUnit.NANOSECONDS);
+        };
+    }
+
+    private void registerGauges(MeterRegistry meterRegistry) {
+        String index = replicas.read(WidgetReplica::indexStats).getType();
+        Gauge.builder("widget.store.size", this, repository -> repository.replicas.read(WidgetReplica::size))
+            .description("Widgets in the z order and columns")
+            .baseUnit("widgets")
+            .register(meterRegistry);
+        Gauge.builder("widget.index.entries", this, repository -> repository.indexStats().getSize())
+            .tag("index", index)
+            .baseUnit("widgets")
+            .register(meterRegistry);
+        Gauge.builder("widget.index.depth", this, repository -> repository.indexStats().getDepth())
+            .tag("index", index)
+            .register(meterRegistry);
+        Gauge.builder("widget.index.memory", this, repository -> repository.indexStats().getEstimatedMemoryBytes())
+            .tag("index", index)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    private IndexStats indexStats() {
+        return replicas.read(WidgetReplica::indexStats);
+    }
+
+    private void recover(WidgetJournal journal, WidgetReplica left, WidgetReplica right) {
+        long started = System.nanoTime();
+        journal.recover(snapshot -> {
+            left.putAll(snapshot.getWidgets());
+            right.putAll(snapshot.getWidgets());
+            atomicIdGenerator.set(snapshot.getLastId());
+        }, record -> {
+            WidgetJournalCodec.Mutation mutation = WidgetJournalCodec.decode(record);
+            replay(mutation, left);
+            replay(mutation, right);
+            atomicIdGenerator.accumulateAndGet(mutation.getLastId(), Math::max);
         });
-    }
-
-    private Widget buildFromWidget(Widget widget, Integer newZIndex) {
-        return Widget.builder()
-            .id(widget.getId())
-            .height(widget.getHeight())
-            .width(widget.getWidth())
-            .zIndex(newZIndex)
-            .xPoint(widget.getXPoint())
-            .yPoint(widget.getYPoint())
-            .modificationDate(LocalDateTime.now())
-            .build();
+        log.info("Recovered {} widgets from the journal in {} ms", left.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Failed writes are logged as well, replaying one leaves the replica as the failed write left it.
+     */
+    private void replay(WidgetJournalCodec.Mutation mutation, WidgetReplica replica) {
+        try {
+            mutation.getChange().apply(replica);
+        } catch (RuntimeException exception) {
+            log.debug("Replayed a failed write: {}", exception.getMessage());
+        }
     }
 }
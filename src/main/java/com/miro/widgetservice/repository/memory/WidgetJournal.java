@@ -0,0 +1,563 @@
+package com.miro.widgetservice.repository.memory;
+
+import com.miro.widgetservice.model.Widget;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-ahead log of {@link WidgetInMemoryRepository} with periodic snapshots.
+ * <p>
+ * Records are appended under the repository write lock into a buffer, a single flusher thread writes
+ * everything buffered with one {@code write} and, depending on {@link Fsync}, one {@code fsync}, so concurrent
+ * writers share the cost of a sync (group commit). Every record is framed as length, CRC32C, record number and
+ * payload, recovery stops at the first torn or corrupted frame.
+ * <p>
+ * The log is split into segments {@code wal-<first record>.log}. A snapshot {@code snapshot-<last record>.bin}
+ * is the whole state up to a record, it is written after {@code snapshotRecords} records in the background,
+ * segments and snapshots it covers are deleted afterwards.
+ * <p>
+ * Waits use {@link java.util.concurrent.locks} instead of monitors, so a writer waiting for a sync on a virtual
+ * thread does not pin its carrier.
+ */
+@Slf4j
+public class WidgetJournal implements Closeable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final int SNAPSHOT_MAGIC = 0x57534e50;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * When appended records reach the disk.
+     */
+    public enum Fsync {
+        /**
+         * A write returns after its record is synced, concurrent writes share one sync.
+         */
+        ALWAYS,
+        /**
+         * Records are written at once and synced every {@code fsyncIntervalMillis}, a crash loses at most
+         * the last interval.
+         */
+        INTERVAL,
+        /**
+         * Records are written at once and synced by the operating system.
+         */
+        NEVER
+    }
+
+    private final Path directory;
+
+    private final Fsync fsync;
+
+    private final long fsyncIntervalMillis;
+
+    private final long snapshotRecords;
+
+    /**
+     * Guards the segment, taken before {@code stateLock}.
+     */
+    private final Lock channelLock = new ReentrantLock();
+
+    /**
+     * Guards buffers, record numbers and the closed and failure state.
+     */
+    private final Lock stateLock = new ReentrantLock();
+
+    /**
+     * Signalled when a record is appended or synced, on failure and on close.
+     */
+    private final Condition stateChanged = stateLock.newCondition();
+
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "widget-journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Thread flusher = new Thread(this::flushLoop, "widget-journal-flusher");
+
+    private FileChannel segment;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private long lastRecord;
+
+    private long durableRecord;
+
+    private volatile long snapshotRecord;
+
+    private long lastSync = System.nanoTime();
+
+    private IOException failure;
+
+    private boolean closed;
+
+    private Runnable snapshotTask;
+
+    @Builder
+    public WidgetJournal(Path directory, Fsync fsync, long fsyncIntervalMillis, long snapshotRecords) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotRecords = snapshotRecords;
+    }
+
+    /**
+     * Loads the latest snapshot, replays records after it and opens a new segment for appends.
+     * A torn tail of the last written segment is cut off.
+     */
+    public void recover(Consumer<Snapshot> snapshotLoader, Consumer<byte[]> recordReplayer) {
+        try {
+            Files.createDirectories(directory);
+            List<Long> snapshots = listNumbered(SNAPSHOT_NAME);
+            if (!snapshots.isEmpty()) {
+                Snapshot snapshot = readSnapshot(snapshotPath(snapshots.get(snapshots.size() - 1)));
+                snapshotLoader.accept(snapshot);
+                snapshotRecord = snapshot.getLastRecord();
+            }
+            lastRecord = snapshotRecord;
+            List<Long> segments = listNumbered(SEGMENT_NAME);
+            for (int i = 0; i < segments.size(); i++) {
+                if (!replaySegment(segmentPath(segments.get(i)), recordReplayer)) {
+                    for (Long later : segments.subList(i + 1, segments.size())) {
+                        log.warn("Deleting journal segment {} after a torn record", later);
+                        Files.delete(segmentPath(later));
+                    }
+                    break;
+                }
+            }
+            durableRecord = lastRecord;
+            segment = openSegment(lastRecord + 1);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Starts the flusher, {@code snapshotTask} is run in the background once {@code snapshotRecords}
+     * records are appended after the last snapshot.
+     */
+    public void start(Runnable snapshotTask) {
+        this.snapshotTask = snapshotTask;
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Buffers a record, called under the repository write lock so record numbers follow the order of writes.
+     *
+     * @return number of the record for {@link #awaitDurable(long)}
+     */
+    public long append(byte[] record) {
+        stateLock.lock();
+        try {
+            if (pending.remaining() < FRAME_HEADER_SIZE + record.length) {
+                pending = grow(pending, FRAME_HEADER_SIZE + record.length);
+            }
+            long number = ++lastRecord;
+            pending.putInt(record.length)
+                .putInt(checksum(number, record))
+                .putLong(number)
+                .put(record);
+            stateChanged.signalAll();
+            return number;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record is synced when fsync is {@link Fsync#ALWAYS}, returns at once otherwise.
+     */
+    public void awaitDurable(long record) {
+        if (fsync != Fsync.ALWAYS) {
+            return;
+        }
+        stateLock.lock();
+        try {
+            while (durableRecord < record && failure == null) {
+                stateChanged.awaitUninterruptibly();
+            }
+            if (durableRecord < record) {
+                throw new UncheckedIOException("Journal record " + record + " is not synced", failure);
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes buffered records and continues in a new segment, called under the repository write lock.
+     *
+     * @return snapshot of the given state, it covers every appended record
+     */
+    public Snapshot rotate(long lastId, List<Widget> widgets) {
+        channelLock.lock();
+        try {
+            flush(fsync != Fsync.NEVER);
+            long covered = lastRecord();
+            segment.close();
+            segment = openSegment(covered + 1);
+            return new Snapshot(covered, lastId, widgets);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the snapshot next to the log and deletes the segments and older snapshots it covers.
+     */
+    public void write(Snapshot snapshot) {
+        try {
+            Path target = snapshotPath(snapshot.getLastRecord());
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), INITIAL_BUFFER_SIZE), new CRC32C());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(snapshot.getLastRecord());
+                out.writeLong(snapshot.getLastId());
+                out.writeInt(snapshot.getWidgets().size());
+                for (Widget widget : snapshot.getWidgets()) {
+                    WidgetJournalCodec.writeWidget(out, widget);
+                }
+                out.writeInt((int)checked.getChecksum().getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            snapshotRecord = snapshot.getLastRecord();
+            for (Long first : listNumbered(SEGMENT_NAME)) {
+                if (first <= snapshot.getLastRecord()) {
+                    Files.delete(segmentPath(first));
+                }
+            }
+            for (Long older : listNumbered(SNAPSHOT_NAME)) {
+                if (older < snapshot.getLastRecord()) {
+                    Files.delete(snapshotPath(older));
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        stateLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+        snapshotExecutor.shutdown();
+        try {
+            flusher.join();
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            if (segment != null) {
+                flush(true);
+                segment.close();
+            }
+        } catch (IOException exception) {
+            fail(exception);
+            throw new UncheckedIOException(exception);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            stateLock.lock();
+            try {
+                while (pending.position() == 0 && !closed && !isSyncDue()) {
+                    if (fsync == Fsync.INTERVAL) {
+                        stateChanged.await(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        stateChanged.await();
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException exception) {
+                return;
+            } finally {
+                stateLock.unlock();
+            }
+            channelLock.lock();
+            try {
+                flush(fsync == Fsync.ALWAYS || isSyncDue());
+            } catch (IOException exception) {
+                log.error("Journal write failed", exception);
+                fail(exception);
+                return;
+            } finally {
+                channelLock.unlock();
+            }
+            if (snapshotRecords > 0 && lastRecord() - snapshotRecord >= snapshotRecords
+                && snapshotRunning.compareAndSet(false, true)) {
+                snapshotExecutor.execute(this::snapshot);
+            }
+        }
+    }
+
+    private void snapshot() {
+        try {
+            long started = System.nanoTime();
+            snapshotTask.run();
+            log.info("Journal snapshot up to record {} written in {} ms", snapshotRecord,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException exception) {
+            log.error("Journal snapshot failed", exception);
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    /**
+     * Writes buffered records to the current segment, called under {@code channelLock}.
+     */
+    private void flush(boolean sync) throws IOException {
+        long flushed;
+        stateLock.lock();
+        try {
+            ByteBuffer filled = pending;
+            pending = flushing;
+            flushing = filled;
+            flushed = lastRecord;
+        } finally {
+            stateLock.unlock();
+        }
+        flushing.flip();
+        while (flushing.hasRemaining()) {
+            segment.write(flushing);
+        }
+        flushing.clear();
+        if (sync) {
+            segment.force(false);
+            stateLock.lock();
+            try {
+                lastSync = System.nanoTime();
+                durableRecord = flushed;
+                stateChanged.signalAll();
+            } finally {
+                stateLock.unlock();
+            }
+        }
+    }
+
+    private void fail(IOException exception) {
+        stateLock.lock();
+        try {
+            failure = exception;
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private boolean isSyncDue() {
+        stateLock.lock();
+        try {
+            return fsync == Fsync.INTERVAL && durableRecord < lastRecord
+                && System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private long lastRecord() {
+        stateLock.lock();
+        try {
+            return lastRecord;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Replays records of a segment after the snapshot.
+     *
+     * @return false if the segment ends with a torn or corrupted record, it is truncated before it
+     */
+    private boolean replaySegment(Path path, Consumer<byte[]> recordReplayer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel), INITIAL_BUFFER_SIZE));
+            long valid = 0;
+            long size = channel.size();
+            while (valid < size) {
+                byte[] record;
+                long number;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    number = in.readLong();
+                    if (length < 0 || valid + FRAME_HEADER_SIZE + length > size) {
+                        return truncate(channel, path, valid);
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                    if (checksum(number, record) != checksum || (number > snapshotRecord && number != lastRecord + 1)) {
+                        return truncate(channel, path, valid);
+                    }
+                } catch (EOFException exception) {
+                    return truncate(channel, path, valid);
+                }
+                if (number > snapshotRecord) {
+                    recordReplayer.accept(record);
+                    lastRecord = number;
+                }
+                valid += FRAME_HEADER_SIZE + record.length;
+            }
+            return true;
+        }
+    }
+
+    private boolean truncate(FileChannel channel, Path path, long size) throws IOException {
+        log.warn("Journal segment {} is torn after {} bytes, truncating", path.getFileName(), size);
+        channel.truncate(size);
+        channel.force(true);
+        return false;
+    }
+
+    private Snapshot readSnapshot(Path path) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+            new BufferedInputStream(Files.newInputStream(path), INITIAL_BUFFER_SIZE), new CRC32C())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Not a widget snapshot: " + path);
+            }
+            long lastRecord = in.readLong();
+            long lastId = in.readLong();
+            int size = in.readInt();
+            List<Widget> widgets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                widgets.add(WidgetJournalCodec.readWidget(in));
+            }
+            int expected = (int)checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IllegalStateException("Widget snapshot is corrupted: " + path);
+            }
+            return new Snapshot(lastRecord, lastId, widgets);
+        }
+    }
+
+    private FileChannel openSegment(long firstRecord) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(firstRecord), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory();
+        return channel;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException exception) {
+            log.debug("Directory {} can not be synced", directory, exception);
+        }
+    }
+
+    private List<Long> listNumbered(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(file -> pattern.matcher(file.getFileName().toString()))
+                .filter(Matcher::matches)
+                .map(matcher -> Long.parseLong(matcher.group(1)))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long firstRecord) {
+        return directory.resolve(String.format("wal-%020d.log", firstRecord));
+    }
+
+    private Path snapshotPath(long lastRecord) {
+        return directory.resolve(String.format("snapshot-%020d.bin", lastRecord));
+    }
+
+    private static int checksum(long number, byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, number));
+        crc.update(record);
+        return (int)crc.getValue();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    /**
+     * State of the repository after record {@code lastRecord}, widgets in z order.
+     */
+    @Value
+    public static class Snapshot {
+
+        long lastRecord;
+
+        long lastId;
+
+        List<Widget> widgets;
+    }
+}
@@ -0,0 +1,228 @@
+package com.miro.widgetservice.repository.memory;
+
+import com.miro.widgetservice.model.Widget;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.Value;
+
+/**
+ * Binary form of {@link WidgetInMemoryRepository} mutations in {@link WidgetJournal} records and snapshots.
+ * A record keeps the arguments of the replica mutation, generated ids included, so replaying it gives the same state.
+ */
+final class WidgetJournalCodec {
+
+    private static final byte SAVE = 1;
+
+    private static final byte SAVE_ALL = 2;
+
+    private static final byte DELETE_BY_ID = 3;
+
+    private static final byte DELETE_ALL = 4;
+
+    private static final byte PUT_ALL = 5;
+
+    private static final byte SHIFT = 6;
+
+    private static final int HAS_ID = 1;
+
+    private static final int HAS_X_POINT = 1 << 1;
+
+    private static final int HAS_Y_POINT = 1 << 2;
+
+    private static final int HAS_Z_INDEX = 1 << 3;
+
+    private static final int HAS_WIDTH = 1 << 4;
+
+    private static final int HAS_HEIGHT = 1 << 5;
+
+    private static final int HAS_MODIFICATION_DATE = 1 << 6;
+
+    private WidgetJournalCodec() {
+    }
+
+    static byte[] save(Widget widget, long newId) {
+        return encode(out -> {
+            out.writeByte(SAVE);
+            out.writeLong(newId);
+            writeWidget(out, widget);
+        });
+    }
+
+    static byte[] saveAll(List<Widget> widgets, long firstNewId) {
+        return encode(out -> {
+            out.writeByte(SAVE_ALL);
+            out.writeLong(firstNewId);
+            writeWidgets(out, widgets);
+        });
+    }
+
+    static byte[] deleteById(long id) {
+        return encode(out -> {
+            out.writeByte(DELETE_BY_ID);
+            out.writeLong(id);
+        });
+    }
+
+    static byte[] deleteAll() {
+        return new byte[] {DELETE_ALL};
+    }
+
+    static byte[] putAll(List<Widget> widgets) {
+        return encode(out -> {
+            out.writeByte(PUT_ALL);
+            writeWidgets(out, widgets);
+        });
+    }
+
+    static byte[] shift(int zIndexStart, int zIndexEnd, int shift) {
+        return encode(out -> {
+            out.writeByte(SHIFT);
+            out.writeInt(zIndexStart);
+            out.writeInt(zIndexEnd);
+            out.writeInt(shift);
+        });
+    }
+
+    static Mutation decode(byte[] record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            byte type = in.readByte();
+            switch (type) {
+                case SAVE: {
+                    long newId = in.readLong();
+                    Widget widget = readWidget(in);
+                    return new Mutation(replica -> replica.save(widget, newId),
+                        Objects.isNull(widget.getId()) ? newId : 0);
+                }
+                case SAVE_ALL: {
+                    long firstNewId = in.readLong();
+                    List<Widget> widgets = readWidgets(in);
+                    long newWidgets = widgets.stream().filter(widget -> Objects.isNull(widget.getId())).count();
+                    return new Mutation(replica -> replica.saveAll(widgets, firstNewId), firstNewId + newWidgets - 1);
+                }
+                case DELETE_BY_ID: {
+                    long id = in.readLong();
+                    return new Mutation(replica -> replica.deleteById(id), 0);
+                }
+                case DELETE_ALL:
+                    return new Mutation(WidgetReplica::deleteAll, 0);
+                case PUT_ALL: {
+                    List<Widget> widgets = readWidgets(in);
+                    return new Mutation(replica -> replica.putAll(widgets), 0);
+                }
+                case SHIFT: {
+                    int zIndexStart = in.readInt();
+                    int zIndexEnd = in.readInt();
+                    int shift = in.readInt();
+                    return new Mutation(replica -> replica.shift(zIndexStart, zIndexEnd, shift), 0);
+                }
+                default:
+                    throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    static void writeWidget(DataOutput out, Widget widget) throws IOException {
+        int fields = (widget.getId() != null ? HAS_ID : 0)
+            | (widget.getXPoint() != null ? HAS_X_POINT : 0)
+            | (widget.getYPoint() != null ? HAS_Y_POINT : 0)
+            | (widget.getZIndex() != null ? HAS_Z_INDEX : 0)
+            | (widget.getWidth() != null ? HAS_WIDTH : 0)
+            | (widget.getHeight() != null ? HAS_HEIGHT : 0)
+            | (widget.getModificationDate() != null ? HAS_MODIFICATION_DATE : 0);
+        out.writeByte(fields);
+        if ((fields & HAS_ID) != 0) {
+            out.writeLong(widget.getId());
+        }
+        if ((fields & HAS_X_POINT) != 0) {
+            out.writeInt(widget.getXPoint());
+        }
+        if ((fields & HAS_Y_POINT) != 0) {
+            out.writeInt(widget.getYPoint());
+        }
+        if ((fields & HAS_Z_INDEX) != 0) {
+            out.writeInt(widget.getZIndex());
+        }
+        if ((fields & HAS_WIDTH) != 0) {
+            out.writeInt(widget.getWidth());
+        }
+        if ((fields & HAS_HEIGHT) != 0) {
+            out.writeInt(widget.getHeight());
+        }
+        if ((fields & HAS_MODIFICATION_DATE) != 0) {
+            out.writeLong(widget.getModificationDate().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(widget.getModificationDate().getNano());
+        }
+    }
+
+    static Widget readWidget(DataInput in) throws IOException {
+        int fields = in.readByte();
+        return Widget.builder()
+            .id((fields & HAS_ID) != 0 ? in.readLong() : null)
+            .xPoint((fields & HAS_X_POINT) != 0 ? in.readInt() : null)
+            .yPoint((fields & HAS_Y_POINT) != 0 ? in.readInt() : null)
+            .zIndex((fields & HAS_Z_INDEX) != 0 ? in.readInt() : null)
+            .width((fields & HAS_WIDTH) != 0 ? in.readInt() : null)
+            .height((fields & HAS_HEIGHT) != 0 ? in.readInt() : null)
+            .modificationDate((fields & HAS_MODIFICATION_DATE) != 0
+                ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC)
+                : null)
+            .build();
+    }
+
+    private static void writeWidgets(DataOutput out, List<Widget> widgets) throws IOException {
+        out.writeInt(widgets.size());
+        for (Widget widget : widgets) {
+            writeWidget(out, widget);
+        }
+    }
+
+    private static List<Widget> readWidgets(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<Widget> widgets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            widgets.add(readWidget(in));
+        }
+        return widgets;
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            encoder.encode(new DataOutputStream(bytes));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Encoder {
+
+        void encode(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Replica mutation of a record and the last id it generates, 0 when it generates none.
+     */
+    @Value
+    static class Mutation {
+
+        Function<WidgetReplica, ?> change;
+
+        long lastId;
+    }
+}
@@ -0,0 +1,461 @@
+package com.miro.widgetservice.repository.memory;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.exception.WidgetServiceException;
+import com.miro.widgetservice.jfr.AreaSearchEvent;
+import com.miro.widgetservice.jfr.ZIndexShiftEvent;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.struct.IndexStats;
+import com.miro.widgetservice.struct.LongTopK;
+import com.miro.widgetservice.struct.SpatialIndex;
+import com.miro.widgetservice.struct.WidgetColumnStore;
+import com.miro.widgetservice.struct.ZOrderTree;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.LongStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.miro.widgetservice.repository.memory.WidgetInMemoryRepository.DEFAULT_PAGE_SIZE;
+
+/**
+ * One copy of the in-memory widget state: primitive columns, z order tree and coordinate index.
+ * Not thread safe; {@link WidgetInMemoryRepository} keeps two replicas behind {@code LeftRight}.
+ * Mutations take generated ids as arguments so that replaying them on the second replica gives the same state.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class WidgetReplica {
+
+    private static final String IMPLEMENTATION = "memory";
+
+    private static final int BULK_LOAD_MIN_SIZE = 64;
+
+    private static final int Z_ORDER_SCAN_FACTOR = 16;
+
+    private static final int Z_ORDER_SCAN_MIN_BUDGET = 1024;
+
+    private final WidgetColumnStore widgetStorage = new WidgetColumnStore();
+
+    private final ZOrderTree zIndexStorage = new ZOrderTree();
+
+    private final SpatialIndex coordinateStorage;
+
+    private final WidgetUtil widgetUtil;
+
+    /**
+     * Receives every z-index shift, the event is ended and carries the moved run.
+     */
+    private final Consumer<ZIndexShiftEvent> shifts;
+
+    Widget save(Widget widget, long newId) {
+        return save(widget, newId, this::updateCoordinates);
+    }
+
+    /**
+     * Widgets without id get {@code firstNewId}, {@code firstNewId + 1}, ... in list order.
+     * Returned widgets have their z indexes after the whole batch.
+     */
+    List<Widget> saveAll(List<Widget> widgets, long firstNewId) {
+        int storedBefore = widgetStorage.size();
+        BitSet touchedSlots = new BitSet();
+        int[] savedSlots = new int[widgets.size()];
+        long newId = firstNewId;
+        try {
+            for (int i = 0; i < widgets.size(); i++) {
+                Widget widget = widgets.get(i);
+                savedSlots[i] = widgetStorage.slotOf(save(widget, newId, touchedSlots::set).getId());
+                if (Objects.isNull(widget.getId())) {
+                    newId++;
+                }
+            }
+        } finally {
+            updateCoordinateStorage(touchedSlots, storedBefore);
+        }
+        List<Widget> savedWidgets = new ArrayList<>(savedSlots.length);
+        for (int slot : savedSlots) {
+            savedWidgets.add(materialize(slot));
+        }
+        return savedWidgets;
+    }
+
+    Optional<Widget> findById(Long id) {
+        int slot = widgetStorage.slotOf(id);
+        return slot == WidgetColumnStore.NO_SLOT ? Optional.empty() : Optional.of(materialize(slot));
+    }
+
+    List<Widget> findAll() {
+        return materialize(findFirst(Integer.MIN_VALUE, Integer.MAX_VALUE), 0);
+    }
+
+    List<Widget> findAll(Integer page, Integer size, SearchAreaDto searchAreaDto) {
+        int resultsPerPage = size == null ? DEFAULT_PAGE_SIZE : size;
+        long fromIndex = (long)page * resultsPerPage;
+        int limit = (int)Math.min(Integer.MAX_VALUE, fromIndex + resultsPerPage);
+
+        long[] slotsByZIndex = findFirst(Integer.MIN_VALUE, limit, searchAreaDto);
+
+        if (slotsByZIndex.length == 0 || slotsByZIndex.length < fromIndex) {
+            log.info("Store is empty");
+            return Collections.emptyList();
+        }
+
+        return materialize(slotsByZIndex, (int)fromIndex);
+    }
+
+    List<Widget> findAllFromZIndex(int zIndex, int size, SearchAreaDto searchAreaDto) {
+        return materialize(findFirst(zIndex, size, searchAreaDto), 0);
+    }
+
+    List<Widget> findAll(SearchAreaDto searchAreaDto) {
+        AreaSearchEvent event = new AreaSearchEvent();
+        event.begin();
+        LongStream.Builder found = LongStream.builder();
+        coordinateStorage.findInArea(searchAreaDto.getXPoint1(),
+            searchAreaDto.getYPoint1(),
+            searchAreaDto.getXPoint2(),
+            searchAreaDto.getYPoint2(),
+            id -> found.add(zIndexOrder(widgetStorage.slotOf(id))));
+
+        long[] slotsByZIndex = found.build().sorted().toArray();
+        List<Widget> widgets = materialize(slotsByZIndex, 0);
+        finish(event, searchAreaDto, slotsByZIndex.length, widgets.size());
+        return widgets;
+    }
+
+    int size() {
+        return widgetStorage.size();
+    }
+
+    IndexStats indexStats() {
+        return coordinateStorage.getStats();
+    }
+
+    boolean isExist(Long id) {
+        return widgetStorage.contains(id);
+    }
+
+    /**
+     * Stores widgets with the ids and z indexes they have, replacing stored widgets with the same id.
+     * The z indexes are expected to be free after the replacement, as in the store being mirrored.
+     */
+    Void putAll(List<Widget> widgets) {
+        int storedBefore = widgetStorage.size();
+        BitSet touchedSlots = new BitSet();
+        try {
+            for (Widget widget : widgets) {
+                int slot = widgetStorage.slotOf(widget.getId());
+                if (slot == WidgetColumnStore.NO_SLOT) {
+                    slot = widgetStorage.insert(widget);
+                } else {
+                    zIndexStorage.remove(slot);
+                    widgetStorage.update(slot, widget);
+                }
+                zIndexStorage.insert(slot, widget.getZIndex());
+                touchedSlots.set(slot);
+            }
+        } finally {
+            updateCoordinateStorage(touchedSlots, storedBefore);
+        }
+        return null;
+    }
+
+    /**
+     * Moves every widget with z index in {@code [zIndexStart, zIndexEnd]} by {@code shift}, the target z indexes
+     * outside of the range are expected to be free.
+     */
+    Void shift(int zIndexStart, int zIndexEnd, int shift) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = zIndexStorage.ceiling(zIndexStart);
+            slot != ZOrderTree.NIL && zIndexStorage.zIndexOf(slot) <= zIndexEnd;
+            slot = zIndexStorage.next(slot)) {
+            slots.add(slot);
+        }
+        if (shift > 0) {
+            Collections.reverse(slots);
+        }
+        ZIndexShiftEvent event = new ZIndexShiftEvent(IMPLEMENTATION);
+        event.begin();
+        for (int slot : slots) {
+            int zIndex = zIndexStorage.zIndexOf(slot);
+            zIndexStorage.remove(slot);
+            zIndexStorage.insert(slot, zIndex + shift);
+        }
+        event.end();
+        event.shifted(zIndexStart, zIndexEnd, shift, slots.size());
+        shifts.accept(event);
+        return null;
+    }
+
+    Void deleteById(Long id) {
+        int slot = widgetStorage.slotOf(id);
+        if (slot == WidgetColumnStore.NO_SLOT) {
+            return null;
+        }
+        zIndexStorage.remove(slot);
+        coordinateStorage.deleteIfExist(id);
+        widgetStorage.remove(slot);
+        return null;
+    }
+
+    Void deleteAll() {
+        widgetStorage.clear();
+        zIndexStorage.clear();
+        coordinateStorage.deleteAll();
+        return null;
+    }
+
+    private Widget save(Widget widget, long newId, IntConsumer coordinateUpdater) {
+        if (Objects.isNull(widget.getId())) {
+            return persist(widget, newId, coordinateUpdater);
+        }
+        return merge(widget, coordinateUpdater);
+    }
+
+    private Widget persist(Widget widget, long newId, IntConsumer coordinateUpdater) {
+        Integer zIndex = widget.getZIndex();
+        ZIndexShiftEvent shift = null;
+
+        if (Objects.isNull(zIndex)) {
+            zIndex = getLastIndex();
+            log.info("Z index is null. Generate new: {}", zIndex);
+        } else if (zIndexStorage.slotAt(zIndex) != ZOrderTree.NIL) {
+            log.info("Z index already exist. Shift and increment existed {}", zIndex);
+            shift = checkShift(zIndex);
+        }
+
+        int slot = widgetStorage.insert(copyOf(widget, newId));
+        zIndexStorage.insert(slot, zIndex);
+        shifted(shift);
+        coordinateUpdater.accept(slot);
+        return widgetStorage.materialize(slot, zIndex);
+    }
+
+    private Widget merge(Widget widgetForUpdate, IntConsumer coordinateUpdater) {
+        int slot = widgetStorage.slotOf(widgetForUpdate.getId());
+        int savedZIndex = zIndexStorage.zIndexOf(slot);
+
+        Integer zIndex = widgetForUpdate.getZIndex();
+
+        if (Objects.isNull(zIndex)) {
+            if (isLastWidgetTheSameAsUpdate(slot)) {
+                zIndex = savedZIndex;
+            } else {
+                zIndex = getLastIndex();
+            }
+        }
+
+        if (zIndex != savedZIndex) {
+            zIndexStorage.remove(slot);
+            ZIndexShiftEvent shift = null;
+            if (zIndexStorage.slotAt(zIndex) != ZOrderTree.NIL) {
+                try {
+                    shift = checkShift(zIndex);
+                } catch (WidgetServiceException exception) {
+                    zIndexStorage.insert(slot, savedZIndex);
+                    throw exception;
+                }
+            }
+            zIndexStorage.insert(slot, zIndex);
+            shifted(shift);
+        }
+
+        widgetStorage.update(slot, widgetForUpdate);
+        coordinateUpdater.accept(slot);
+        return widgetStorage.materialize(slot, zIndex);
+    }
+
+    private void updateCoordinates(int slot) {
+        coordinateStorage.putOrReplace(widgetStorage.getId(slot),
+            widgetStorage.getXPoint(slot),
+            widgetStorage.getYPoint(slot),
+            widgetStorage.getMaxXPoint(slot),
+            widgetStorage.getMaxYPoint(slot));
+    }
+
+    private void updateCoordinateStorage(BitSet touchedSlots, int storedBefore) {
+        int touched = touchedSlots.cardinality();
+        if (touched >= BULK_LOAD_MIN_SIZE && touched >= storedBefore) {
+            log.info("Bulk load coordinate storage with {} widgets", widgetStorage.size());
+            loadCoordinateStorage();
+            return;
+        }
+        touchedSlots.stream().forEach(this::updateCoordinates);
+    }
+
+    private void loadCoordinateStorage() {
+        long[] ids = new long[zIndexStorage.size()];
+        int[] bounds = new int[ids.length * 4];
+        int count = 0;
+        for (int slot = zIndexStorage.first(); slot != ZOrderTree.NIL; slot = zIndexStorage.next(slot)) {
+            int b = count * 4;
+            ids[count++] = widgetStorage.getId(slot);
+            bounds[b] = widgetStorage.getXPoint(slot);
+            bounds[b + 1] = widgetStorage.getYPoint(slot);
+            bounds[b + 2] = widgetStorage.getMaxXPoint(slot);
+            bounds[b + 3] = widgetStorage.getMaxYPoint(slot);
+        }
+        coordinateStorage.loadAll(ids, bounds, count);
+    }
+
+    private long[] findFirst(int fromZIndex, int limit, SearchAreaDto searchAreaDto) {
+        return widgetUtil.isSearchDtoValid(searchAreaDto)
+            ? findFirstInArea(fromZIndex, limit, searchAreaDto)
+            : findFirst(fromZIndex, limit);
+    }
+
+    private long[] findFirst(int fromZIndex, int limit) {
+        long[] slotsByZIndex = new long[Math.min(limit, zIndexStorage.size())];
+        int found = 0;
+        int slot = zIndexStorage.ceiling(fromZIndex);
+        long zIndex = slot == ZOrderTree.NIL ? 0 : zIndexStorage.zIndexOf(slot);
+        while (slot != ZOrderTree.NIL && found < slotsByZIndex.length) {
+            slotsByZIndex[found++] = zIndexOrder(slot, zIndex);
+            slot = zIndexStorage.next(slot);
+            zIndex += slot == ZOrderTree.NIL ? 0 : zIndexStorage.gapBefore(slot);
+        }
+        return Arrays.copyOf(slotsByZIndex, found);
+    }
+
+    /**
+     * First {@code limit} widgets inside the area with z index not below {@code fromZIndex}, in z order. Walks the z order first and stops after
+     * {@code limit} matches, so a page of a dense viewport costs about the page size. If the area is too
+     * sparse to fill the page within the scan budget, selects the smallest z-indexes out of the spatial
+     * index matches with a bounded heap instead of sorting all of them.
+     */
+    private long[] findFirstInArea(int fromZIndex, int limit, SearchAreaDto searchAreaDto) {
+        AreaSearchEvent event = new AreaSearchEvent();
+        event.begin();
+        long[] candidates = new long[1];
+        long[] slotsByZIndex = findFirstInArea(fromZIndex, limit, searchAreaDto, candidates);
+        finish(event, searchAreaDto, candidates[0], slotsByZIndex.length);
+        return slotsByZIndex;
+    }
+
+    private long[] findFirstInArea(int fromZIndex, int limit, SearchAreaDto searchAreaDto, long[] candidates) {
+        int minX = searchAreaDto.getXPoint1();
+        int minY = searchAreaDto.getYPoint1();
+        int maxX = searchAreaDto.getXPoint2();
+        int maxY = searchAreaDto.getYPoint2();
+
+        long[] slotsByZIndex = new long[Math.min(limit, zIndexStorage.size())];
+        long budget = Math.max(Z_ORDER_SCAN_MIN_BUDGET, (long)limit * Z_ORDER_SCAN_FACTOR);
+        int found = 0;
+        int scanned = 0;
+        int slot = zIndexStorage.ceiling(fromZIndex);
+        long zIndex = slot == ZOrderTree.NIL ? 0 : zIndexStorage.zIndexOf(slot);
+        while (slot != ZOrderTree.NIL) {
+            if (found == slotsByZIndex.length) {
+                candidates[0] = scanned;
+                return slotsByZIndex;
+            }
+            if (scanned++ == budget) {
+                candidates[0] = scanned;
+                LongTopK topK = new LongTopK(limit, slotsByZIndex.length);
+                coordinateStorage.findInArea(minX, minY, maxX, maxY, id -> {
+                    candidates[0]++;
+                    long order = zIndexOrder(widgetStorage.slotOf(id));
+                    if (order >> 32 >= fromZIndex) {
+                        topK.add(order);
+                    }
+                });
+                return topK.toSortedArray();
+            }
+            if (isInArea(slot, minX, minY, maxX, maxY)) {
+                slotsByZIndex[found++] = zIndexOrder(slot, zIndex);
+            }
+            slot = zIndexStorage.next(slot);
+            zIndex += slot == ZOrderTree.NIL ? 0 : zIndexStorage.gapBefore(slot);
+        }
+        candidates[0] = scanned;
+        return Arrays.copyOf(slotsByZIndex, found);
+    }
+
+    private boolean isInArea(int slot, int minX, int minY, int maxX, int maxY) {
+        return minX <= widgetStorage.getXPoint(slot)
+            && minY <= widgetStorage.getYPoint(slot)
+            && maxX >= widgetStorage.getMaxXPoint(slot)
+            && maxY >= widgetStorage.getMaxYPoint(slot);
+    }
+
+    private long zIndexOrder(int slot) {
+        return zIndexOrder(slot, zIndexStorage.zIndexOf(slot));
+    }
+
+    private long zIndexOrder(int slot, long zIndex) {
+        return (zIndex << 32) | slot;
+    }
+
+    private boolean isLastWidgetTheSameAsUpdate(int slot) {
+        return zIndexStorage.last() == slot;
+    }
+
+    private int getLastIndex() {
+        if (zIndexStorage.isEmpty()) {
+            return 0;
+        }
+        if (zIndexStorage.lastZIndex() == Integer.MAX_VALUE) {
+            throw new WidgetServiceException("Z Index reach maximum");
+        }
+        return zIndexStorage.lastZIndex() + 1;
+    }
+
+    /**
+     * Inserting at an occupied z index moves the contiguous run above it, which must not pass the maximum.
+     * Returns the started shift event, ended by {@link #shifted(ZIndexShiftEvent)} after the insert.
+     */
+    private ZIndexShiftEvent checkShift(int zIndex) {
+        ZIndexShiftEvent event = new ZIndexShiftEvent(IMPLEMENTATION);
+        event.begin();
+        int lastZIndex = zIndexStorage.lastZIndexWithoutGap(zIndex);
+        log.info("Last Z index in sequence {}", lastZIndex);
+        if (lastZIndex == Integer.MAX_VALUE) {
+            throw new WidgetServiceException("Z Index reach maximum");
+        }
+        event.shifted(zIndex, lastZIndex, 1, lastZIndex - zIndex + 1);
+        return event;
+    }
+
+    private void shifted(ZIndexShiftEvent event) {
+        if (event != null) {
+            event.end();
+            shifts.accept(event);
+        }
+    }
+
+    private void finish(AreaSearchEvent event, SearchAreaDto searchAreaDto, long candidates, long results) {
+        event.finish(IMPLEMENTATION, searchAreaDto.getXPoint1(), searchAreaDto.getYPoint1(),
+            searchAreaDto.getXPoint2(), searchAreaDto.getYPoint2(), candidates, results);
+    }
+
+    private Widget copyOf(Widget widget, Long id) {
+        return Widget.builder()
+            .id(id)
+            .xPoint(widget.getXPoint())
+            .yPoint(widget.getYPoint())
+            .width(widget.getWidth())
+            .height(widget.getHeight())
+            .modificationDate(widget.getModificationDate())
+            .build();
+    }
+
+    private Widget materialize(int slot) {
+        return widgetStorage.materialize(slot, zIndexStorage.zIndexOf(slot));
+    }
+
+    private List<Widget> materialize(long[] slotsByZIndex, int fromIndex) {
+        List<Widget> widgets = new ArrayList<>(slotsByZIndex.length - fromIndex);
+        for (int i = fromIndex; i < slotsByZIndex.length; i++) {
+            widgets.add(widgetStorage.materialize((int)slotsByZIndex[i], (int)(slotsByZIndex[i] >> 32)));
+        }
+        return widgets;
+    }
+}
@@ -1,9 +1,11 @@
 package com.miro.widgetservice.service;
 
 import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
 import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface WidgetService {
 
@@ -17,6 +19,13 @@ public interface WidgetService {
 
     List<WidgetRespDto> findAll();
 
+    /**
+     * Passes widgets inside the area, all when the area is not set, to the consumer in z order while they are read.
+     */
+    void forEach(SearchAreaDto searchAreaDto, Consumer<WidgetRespDto> consumer);
+
+    WidgetPageDto findPage(String cursor, Integer size, SearchAreaDto searchAreaDto);
+
     void deleteById(Long id);
 
     void deleteAll();
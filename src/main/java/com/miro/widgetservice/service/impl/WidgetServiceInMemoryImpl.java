@@ -2,21 +2,27 @@ package com.miro.widgetservice.service.impl;
 
 import com.miro.widgetservice.converter.WidgetConverter;
 import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
 import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.exception.WidgetServiceException;
 import com.miro.widgetservice.model.Widget;
 import com.miro.widgetservice.repository.WidgetRepository;
 import com.miro.widgetservice.service.WidgetService;
+import com.miro.widgetservice.util.WidgetUtil;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import static com.miro.widgetservice.repository.memory.WidgetInMemoryRepository.DEFAULT_PAGE_SIZE;
+import static com.miro.widgetservice.repository.memory.WidgetInMemoryRepository.STREAM_CHUNK_SIZE;
+
 @Profile("memory")
 @Slf4j
 @Service
@@ -27,6 +33,8 @@ public class WidgetServiceInMemoryImpl implements WidgetService {
 
     private final WidgetConverter widgetConverter;
 
+    private final WidgetUtil widgetUtil;
+
     @Override
     public WidgetRespDto create(WidgetReqDto widgetReqDto) {
         log.info("Create new widget {}", widgetReqDto);
@@ -88,6 +96,39 @@ public class WidgetServiceInMemoryImpl implements WidgetService {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Reads the z order in chunks, a read held for the whole response would keep writers waiting.
+     */
+    @Override
+    public void forEach(SearchAreaDto searchAreaDto, Consumer<WidgetRespDto> consumer) {
+        widgetUtil.forEachInZOrder(zIndex -> widgetRepository.findAllFromZIndex(zIndex, STREAM_CHUNK_SIZE, searchAreaDto)
+            .stream()
+            .map(widgetConverter::convert)
+            .collect(Collectors.toList()), consumer);
+    }
+
+    @Override
+    public WidgetPageDto findPage(String cursor, Integer size, SearchAreaDto searchAreaDto) {
+        log.info("Find widgets after cursor {}. Size: {}", cursor, size);
+
+        if (!Objects.isNull(size) && (size < 0 || size > 500)) {
+            throw new WidgetServiceException("Invalid size argument");
+        }
+        int pageSize = Objects.isNull(size) ? DEFAULT_PAGE_SIZE : size;
+        int zIndex = widgetUtil.getCursorZIndex(cursor);
+
+        List<Widget> found = widgetRepository.findAllFromZIndex(zIndex, pageSize + 1, searchAreaDto);
+        List<Widget> widgets = found.subList(0, Math.min(pageSize, found.size()));
+
+        Integer lastZIndex = widgets.isEmpty() ? null : widgets.get(widgets.size() - 1).getZIndex();
+        return WidgetPageDto.builder()
+            .widgets(widgets.stream()
+                .map(widgetConverter::convert)
+                .collect(Collectors.toList()))
+            .nextCursor(widgetUtil.getNextCursor(lastZIndex, found.size() > pageSize))
+            .build();
+    }
+
     @Override
     public void deleteById(Long id) {
         log.info("Delete widget by id {}", id);
@@ -107,8 +148,15 @@ public class WidgetServiceInMemoryImpl implements WidgetService {
 
     @Override
     public List<WidgetRespDto> saveAll(List<WidgetReqDto> widgetList) {
-        return widgetList.stream()
-            .map(this::create)
+        log.info("Save {} widgets", widgetList.size());
+        LocalDateTime modificationDate = LocalDateTime.now();
+        List<Widget> widgets = widgetList.stream()
+            .map(widgetConverter::convert)
+            .peek(widget -> widget.setModificationDate(modificationDate))
+            .collect(Collectors.toList());
+
+        return widgetRepository.saveAll(widgets).stream()
+            .map(widgetConverter::convert)
             .collect(Collectors.toList());
     }
 
@@ -1,39 +1,75 @@
 package com.miro.widgetservice.service.impl;
 
+import com.miro.widgetservice.cache.WidgetCache;
+import com.miro.widgetservice.cache.WidgetIndexMirror;
+import com.miro.widgetservice.cache.WidgetQueryKey;
 import com.miro.widgetservice.converter.WidgetConverter;
 import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
 import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.exception.WidgetServiceException;
+import com.miro.widgetservice.jfr.ZIndexShiftEvent;
+import com.miro.widgetservice.model.Widget;
 import com.miro.widgetservice.model.WidgetEntity;
 import com.miro.widgetservice.repository.jpa.WidgetJpaRepository;
 import com.miro.widgetservice.service.WidgetService;
+import com.miro.widgetservice.struct.ZOrderTree;
 import com.miro.widgetservice.util.WidgetUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import static com.miro.widgetservice.repository.memory.WidgetInMemoryRepository.DEFAULT_PAGE_SIZE;
+import static com.miro.widgetservice.repository.memory.WidgetInMemoryRepository.STREAM_CHUNK_SIZE;
 
 @Slf4j
 @Profile("database")
 @Service
-@RequiredArgsConstructor
 public class WidgetServiceJpaImpl implements WidgetService {
 
+    private static final String IMPLEMENTATION = "database";
+
     private final WidgetJpaRepository widgetRepository;
 
     private final WidgetConverter widgetConverter;
 
     private final WidgetUtil widgetUtil;
 
+    private final WidgetCache widgetCache;
+
+    private final Optional<WidgetIndexMirror> widgetIndexMirror;
+
+    private final DistributionSummary shiftLengths;
+
+    public WidgetServiceJpaImpl(WidgetJpaRepository widgetRepository, WidgetConverter widgetConverter,
+        WidgetUtil widgetUtil, WidgetCache widgetCache, Optional<WidgetIndexMirror> widgetIndexMirror,
+        MeterRegistry meterRegistry) {
+        this.widgetRepository = widgetRepository;
+        this.widgetConverter = widgetConverter;
+        this.widgetUtil = widgetUtil;
+        this.widgetCache = widgetCache;
+        this.widgetIndexMirror = widgetIndexMirror;
+        this.shiftLengths = DistributionSummary.builder("widget.shift.length")
+            .baseUnit("widgets")
+            .tag("implementation", IMPLEMENTATION)
+            .register(meterRegistry);
+    }
+
     @Override
     @Transactional
     public WidgetRespDto create(WidgetReqDto widgetReqDto) {
@@ -50,6 +86,8 @@ public class WidgetServiceJpaImpl implements WidgetService {
 
         widgetEntity.setZIndex(zIndex);
         WidgetEntity savedEntity = widgetRepository.save(widgetEntity);
+        widgetCache.evict(savedEntity);
+        widgetIndexMirror.ifPresent(mirror -> mirror.saved(List.of(savedEntity)));
 
         return widgetConverter.convertEntity(savedEntity);
     }
@@ -63,9 +101,12 @@ public class WidgetServiceJpaImpl implements WidgetService {
             .orElseThrow(() -> new WidgetServiceException(getErrorMessage(id)));
 
         if (!Objects.isNull(storedWidget)) {
+            widgetCache.evict(storedWidget);
             WidgetEntity widgetForUpdate = widgetConverter.convertEntity(widgetReqDto);
             widgetForUpdate.setId(id);
             WidgetEntity updatedWidget = merge(widgetForUpdate, storedWidget);
+            widgetCache.evict(updatedWidget);
+            widgetIndexMirror.ifPresent(mirror -> mirror.saved(List.of(updatedWidget)));
             return widgetConverter.convertEntity(updatedWidget);
         }
 
@@ -77,8 +118,7 @@ public class WidgetServiceJpaImpl implements WidgetService {
     public WidgetRespDto findById(Long id) {
         log.info("Find widget by id {}", id);
 
-        return widgetRepository.findById(id)
-            .map(widgetConverter::convertEntity)
+        return widgetCache.findById(id, key -> widgetRepository.findById(key).map(widgetConverter::convertEntity))
             .orElseThrow(() -> new WidgetServiceException(getErrorMessage(id)));
     }
 
@@ -86,14 +126,20 @@ public class WidgetServiceJpaImpl implements WidgetService {
     @Transactional(readOnly = true)
     public List<WidgetRespDto> findAll(Integer page, Integer size, SearchAreaDto searchAreaDto) {
         Sort sort = Sort.by(Sort.Direction.ASC, "zIndex");
+        SearchAreaDto area = widgetUtil.isSearchDtoValid(searchAreaDto) ? searchAreaDto : null;
 
         if (Objects.isNull(page)) {
-            if (widgetUtil.isSearchDtoValid(searchAreaDto)) {
-                List<WidgetEntity> widgetEntities = widgetRepository.findAll(searchAreaDto);
-                return mapAndCollect(widgetEntities);
+            WidgetQueryKey queryKey = WidgetQueryKey.builder()
+                .area(area)
+                .build();
+            if (!Objects.isNull(area) && widgetIndexMirror.isPresent()) {
+                return findAllById(widgetIndexMirror.get().findAll(area));
+            }
+            if (!Objects.isNull(area)) {
+                return widgetCache.findAll(queryKey, null,
+                    () -> mapAndCollect(widgetRepository.findAllInArea(area, null, Pageable.unpaged())));
             }
-            List<WidgetEntity> widgetEntities = widgetRepository.findAll(sort);
-            return mapAndCollect(widgetEntities);
+            return widgetCache.findAll(queryKey, null, () -> mapAndCollect(widgetRepository.findAll(sort)));
         }
 
         if (page < 0) {
@@ -107,15 +153,70 @@ public class WidgetServiceJpaImpl implements WidgetService {
         }
 
         PageRequest pageRequest = PageRequest.of(page, size, sort);
+        WidgetQueryKey queryKey = WidgetQueryKey.builder()
+            .page(page)
+            .size(size)
+            .area(area)
+            .build();
+
+        if (!Objects.isNull(area) && widgetIndexMirror.isPresent()) {
+            return findAllById(widgetIndexMirror.get().findAll(page, size, area));
+        }
+        if (!Objects.isNull(area)) {
+            return widgetCache.findAll(queryKey, size,
+                () -> mapAndCollect(widgetRepository.findAllInArea(area, null, pageRequest)));
+        }
+        return widgetCache.findAll(queryKey, size,
+            () -> mapAndCollect(widgetRepository.findAll(pageRequest).getContent()));
+    }
 
-        if (widgetUtil.isSearchDtoValid(searchAreaDto)) {
-            List<WidgetEntity> widgetEntities = widgetRepository.findAll(searchAreaDto, pageRequest);
-            return mapAndCollect(widgetEntities);
+    @Override
+    @Transactional(readOnly = true)
+    public WidgetPageDto findPage(String cursor, Integer size, SearchAreaDto searchAreaDto) {
+        log.info("Find widgets after cursor {}. Size: {}", cursor, size);
+
+        if (!Objects.isNull(size) && (size < 0 || size > 500)) {
+            throw new WidgetServiceException("Invalid size argument");
         }
-        return widgetRepository.findAll(pageRequest)
-            .stream()
-            .map(widgetConverter::convertEntity)
-            .collect(Collectors.toList());
+        int pageSize = Objects.isNull(size) ? DEFAULT_PAGE_SIZE : size;
+        int zIndex = widgetUtil.getCursorZIndex(cursor);
+
+        SearchAreaDto area = widgetUtil.isSearchDtoValid(searchAreaDto) ? searchAreaDto : null;
+        WidgetQueryKey queryKey = WidgetQueryKey.builder()
+            .size(pageSize)
+            .fromZIndex(zIndex)
+            .area(area)
+            .build();
+
+        if (!Objects.isNull(area) && widgetIndexMirror.isPresent()) {
+            WidgetIndexMirror mirror = widgetIndexMirror.get();
+            List<Widget> found = mirror.findAllFromZIndex(zIndex, pageSize + 1, area);
+            List<Widget> mirrored = found.subList(0, Math.min(pageSize, found.size()));
+            Integer lastMirroredZIndex = mirrored.isEmpty() ? null : mirrored.get(mirrored.size() - 1).getZIndex();
+            return WidgetPageDto.builder()
+                .widgets(findAllById(mirror.toIds(mirrored)))
+                .nextCursor(widgetUtil.getNextCursor(lastMirroredZIndex, found.size() > pageSize))
+                .build();
+        }
+
+        // one widget ahead of the page tells whether a next page exists
+        List<WidgetRespDto> found = widgetCache.findAll(queryKey, pageSize + 1, () -> {
+            if (pageSize == 0) {
+                return List.of();
+            }
+            PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+            if (!Objects.isNull(area)) {
+                return mapAndCollect(widgetRepository.findAllInArea(area, zIndex, pageRequest));
+            }
+            return mapAndCollect(widgetRepository.findAllFromZIndex(zIndex, pageRequest));
+        });
+        List<WidgetRespDto> widgets = found.subList(0, Math.min(pageSize, found.size()));
+
+        Integer lastZIndex = widgets.isEmpty() ? null : widgets.get(widgets.size() - 1).getZIndex();
+        return WidgetPageDto.builder()
+            .widgets(widgets)
+            .nextCursor(widgetUtil.getNextCursor(lastZIndex, found.size() > pageSize))
+            .build();
     }
 
     @Override
@@ -123,33 +224,54 @@ public class WidgetServiceJpaImpl implements WidgetService {
     public void deleteById(Long id) {
         log.info("Delete widget by id {}", id);
 
-        if (isExist(id)) {
-            widgetRepository.deleteById(id);
-            return;
-        }
-
-        throw new WidgetServiceException(getErrorMessage(id));
+        WidgetEntity storedWidget = widgetRepository.findById(id)
+            .orElseThrow(() -> new WidgetServiceException(getErrorMessage(id)));
+        widgetRepository.delete(storedWidget);
+        widgetCache.evict(storedWidget);
+        widgetIndexMirror.ifPresent(mirror -> mirror.deleted(storedWidget));
     }
 
     @Override
     @Transactional
     public void deleteAll() {
         log.info("Delete all");
-        widgetRepository.deleteAll();
+        widgetRepository.deleteAllInBatch();
+        widgetCache.evictAll();
+        widgetIndexMirror.ifPresent(WidgetIndexMirror::deletedAll);
     }
 
     @Override
+    @Transactional
     public List<WidgetRespDto> saveAll(List<WidgetReqDto> widgetList) {
-        return widgetList.stream()
-            .map(this::create)
+        log.info("Save {} widgets", widgetList.size());
+        List<WidgetEntity> widgetEntities = widgetList.stream()
+            .map(widgetConverter::convertEntity)
             .collect(Collectors.toList());
+
+        placeZIndexes(widgetEntities);
+
+        List<WidgetEntity> savedEntities = widgetRepository.saveAll(widgetEntities);
+        savedEntities.forEach(widgetCache::evict);
+        widgetIndexMirror.ifPresent(mirror -> mirror.saved(savedEntities));
+        return mapAndCollect(savedEntities);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<WidgetRespDto> findAll() {
-        return widgetRepository.findAll(Sort.by(Sort.Direction.ASC, "zIndex")).stream()
-            .map(widgetConverter::convertEntity)
-            .collect(Collectors.toList());
+        return widgetCache.findAll(WidgetQueryKey.builder().build(), null,
+            () -> mapAndCollect(widgetRepository.findAll(Sort.by(Sort.Direction.ASC, "zIndex"))));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(SearchAreaDto searchAreaDto, Consumer<WidgetRespDto> consumer) {
+        SearchAreaDto area = widgetUtil.isSearchDtoValid(searchAreaDto) ? searchAreaDto : null;
+        if (!Objects.isNull(area) && widgetIndexMirror.isPresent()) {
+            widgetIndexMirror.get().forEachChunk(area, STREAM_CHUNK_SIZE, ids -> findAllById(ids).forEach(consumer));
+            return;
+        }
+        widgetRepository.forEach(area, widgetEntity -> consumer.accept(widgetConverter.convertEntity(widgetEntity)));
     }
 
     private WidgetEntity merge(WidgetEntity widgetForUpdate, WidgetEntity storedWidget) {
@@ -177,29 +299,148 @@ public class WidgetServiceJpaImpl implements WidgetService {
     }
 
     private void shiftAndIncrement(Integer zIndex) {
-        List<WidgetEntity> widgetEntities = widgetRepository.findAllWithEqualOrGreaterZIndex(zIndex);
+        ZIndexShiftEvent event = new ZIndexShiftEvent(IMPLEMENTATION);
+        event.begin();
+        Integer lastZIndexWithoutGap = widgetRepository.findZIndexesBeforeGap(zIndex, PageRequest.of(0, 1)).get(0);
+        log.info("Last Z index in sequence {}", lastZIndexWithoutGap);
+        if (Integer.MAX_VALUE == lastZIndexWithoutGap) {
+            throw new WidgetServiceException("Z Index reach maximum");
+        }
 
-        List<Integer> zIndexSet = widgetEntities.stream()
+        Integer shifted = widgetRepository.incrementFromIndexToIndex(zIndex, lastZIndexWithoutGap);
+        log.info("{} widgets was shifted", shifted);
+        event.shifted(zIndex, lastZIndexWithoutGap, 1, shifted);
+        recordShift(event);
+        widgetCache.evictShift(zIndex, lastZIndexWithoutGap, 1);
+        widgetIndexMirror.ifPresent(mirror -> mirror.shifted(zIndex, lastZIndexWithoutGap, 1));
+    }
+
+    private void recordShift(ZIndexShiftEvent event) {
+        event.commit();
+        shiftLengths.record(event.getWidgets());
+    }
+
+    /**
+     * Places the whole batch as if the widgets were created one by one. Stored z indexes that the batch can move
+     * are replayed in a {@link ZOrderTree} together with the batch, then every run of stored widgets moved by
+     * the same distance is shifted with one update, from the top so that unique z indexes never collide.
+     * <p>
+     * Only the z indexes the batch can reach are loaded: from every given z index up through the contiguous runs
+     * above it, as long as the free z indexes passed on the way could all be taken by the batch.
+     */
+    private void placeZIndexes(List<WidgetEntity> widgetEntities) {
+        List<Integer> storedZIndexes = new ArrayList<>();
+        BitSet rangeStarts = new BitSet();
+        long loadedTo = Long.MIN_VALUE;
+        List<Integer> zIndexes = widgetEntities.stream()
             .map(WidgetEntity::getZIndex)
+            .filter(Objects::nonNull)
+            .distinct()
+            .sorted()
             .collect(Collectors.toList());
+        for (Integer zIndex : zIndexes) {
+            long from;
+            long free;
+            if (zIndex > loadedTo) {
+                rangeStarts.set(storedZIndexes.size());
+                from = zIndex;
+                free = 0;
+            } else {
+                int position = Collections.binarySearch(storedZIndexes, zIndex);
+                int storedFrom = position >= 0 ? position : -position - 1;
+                from = loadedTo + 1;
+                free = loadedTo - zIndex + 1 - (storedZIndexes.size() - storedFrom);
+            }
+            long to = findLastReachableZIndex(from, free, widgetEntities.size());
+            if (to >= from) {
+                storedZIndexes.addAll(widgetRepository.findZIndexesFromIndexToIndex((int)from, (int)to));
+            }
+            loadedTo = Math.max(loadedTo, to);
+        }
+        Integer maxStoredZIndex = widgetRepository.findMaxZIndex();
 
-        Integer lastZIndexWithoutGap = widgetUtil.getLastZIndexWithoutGap(zIndexSet);
-        log.info("Last Z index in sequence {}", lastZIndexWithoutGap);
+        ZOrderTree zOrderTree = new ZOrderTree();
+        for (int slot = 0; slot < storedZIndexes.size(); slot++) {
+            zOrderTree.insert(slot, storedZIndexes.get(slot));
+        }
+        for (int i = 0; i < widgetEntities.size(); i++) {
+            Integer zIndex = widgetEntities.get(i).getZIndex();
+            if (Objects.isNull(zIndex)) {
+                Integer lastZIndex = zOrderTree.isEmpty() ? maxStoredZIndex : zOrderTree.lastZIndex();
+                if (!Objects.isNull(maxStoredZIndex) && maxStoredZIndex > lastZIndex) {
+                    lastZIndex = maxStoredZIndex;
+                }
+                zIndex = getNextZIndex(lastZIndex);
+            } else if (zOrderTree.slotAt(zIndex) != ZOrderTree.NIL
+                && zOrderTree.lastZIndexWithoutGap(zIndex) == Integer.MAX_VALUE) {
+                throw new WidgetServiceException("Z Index reach maximum");
+            }
+            zOrderTree.insert(storedZIndexes.size() + i, zIndex);
+        }
 
-        Integer shifted = widgetRepository.incrementFromIndexToIndex(zIndex, lastZIndexWithoutGap);
-        log.info("{} widgets was shifted", shifted);
+        int runEnd = storedZIndexes.size() - 1;
+        for (int slot = storedZIndexes.size() - 1; slot >= 0; slot--) {
+            int shift = zOrderTree.zIndexOf(slot) - storedZIndexes.get(slot);
+            if (rangeStarts.get(slot) || zOrderTree.zIndexOf(slot - 1) - storedZIndexes.get(slot - 1) != shift) {
+                if (shift != 0) {
+                    int zIndexStart = storedZIndexes.get(slot);
+                    int zIndexEnd = storedZIndexes.get(runEnd);
+                    ZIndexShiftEvent event = new ZIndexShiftEvent(IMPLEMENTATION);
+                    event.begin();
+                    Integer shifted = widgetRepository.shiftFromIndexToIndex(zIndexStart, zIndexEnd, shift);
+                    log.info("{} widgets was shifted by {}", shifted, shift);
+                    event.shifted(zIndexStart, zIndexEnd, shift, shifted);
+                    recordShift(event);
+                    widgetCache.evictShift(zIndexStart, zIndexEnd, shift);
+                    widgetIndexMirror.ifPresent(mirror -> mirror.shifted(zIndexStart, zIndexEnd, shift));
+                }
+                runEnd = slot - 1;
+            }
+        }
+
+        for (int i = 0; i < widgetEntities.size(); i++) {
+            widgetEntities.get(i).setZIndex(zOrderTree.zIndexOf(storedZIndexes.size() + i));
+        }
     }
 
-    private Integer getLastZIndex() {
-        Integer maxZIndex = widgetRepository.findMaxZIndex();
+    /**
+     * Follows runs of stored z indexes up from {@code from} while at most {@code reach} free z indexes are passed,
+     * {@code free} of them already below {@code from}.
+     *
+     * @return the end of the reachable runs, {@code from - 1} when there are none
+     */
+    private long findLastReachableZIndex(long from, long free, int reach) {
+        long next = from;
+        while (free <= reach && next <= Integer.MAX_VALUE) {
+            Integer nextStored = widgetRepository.findMinZIndexFrom((int)next);
+            if (Objects.isNull(nextStored)) {
+                break;
+            }
+            free += nextStored - next;
+            if (free > reach) {
+                break;
+            }
+            next = widgetRepository.findZIndexesBeforeGap(nextStored, PageRequest.of(0, 1)).get(0) + 1L;
+        }
+        return next - 1;
+    }
+
+    private Integer getNextZIndex(Integer maxZIndex) {
         if (maxZIndex == null) {
             return 0;
         }
         if (Integer.MAX_VALUE == maxZIndex) {
             throw new WidgetServiceException("z Index reach maximum");
-        } else {
-            return maxZIndex + 1;
         }
+        return maxZIndex + 1;
+    }
+
+    private Integer getLastZIndex() {
+        return getNextZIndex(widgetRepository.findMaxZIndex());
+    }
+
+    private List<WidgetRespDto> findAllById(List<Long> ids) {
+        return widgetCache.findAllById(ids, missingIds -> mapAndCollect(widgetRepository.findAllById(missingIds)));
     }
 
     private List<WidgetRespDto> mapAndCollect(List<WidgetEntity> widgetEntities) {
@@ -212,9 +453,4 @@ public class WidgetServiceJpaImpl implements WidgetService {
     private String getErrorMessage(Long id) {
         return "Widget with id " + id + " does not exist";
     }
-
-    private boolean isExist(Long id) {
-        log.info("Widget is exist by id {}", id);
-        return widgetRepository.existsById(id);
-    }
 }
@@ -0,0 +1,100 @@
+package com.miro.widgetservice.struct;
+
+import com.miro.widgetservice.jfr.AreaSearchEvent;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Base for indexes working on primitive {@code int} rectangles: counts query cost and reports searches to JFR.
+ * Takes no locks, see {@link SpatialIndex}.
+ */
+public abstract class AbstractSpatialIndex implements SpatialIndex {
+
+    private final LongAdder queries = new LongAdder();
+
+    private final LongAdder examinedEntries = new LongAdder();
+
+    @Override
+    public void putOrReplace(long id, int minX, int minY, int maxX, int maxY) {
+        if (contains(id)) {
+            move(id, minX, minY, maxX, maxY);
+        } else {
+            insert(id, minX, minY, maxX, maxY);
+        }
+    }
+
+    @Override
+    public void deleteIfExist(long id) {
+        if (contains(id)) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public void findInArea(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        AreaSearchEvent event = new AreaSearchEvent();
+        event.begin();
+        int examined = search(minX, minY, maxX, maxY, event.counting(consumer));
+        queries.increment();
+        examinedEntries.add(examined);
+        event.finish(getClass().getSimpleName(), minX, minY, maxX, maxY, examined);
+    }
+
+    @Override
+    public void deleteAll() {
+        clear();
+    }
+
+    @Override
+    public void loadAll(long[] ids, int[] bounds, int count) {
+        clear();
+        load(ids, bounds, count);
+    }
+
+    @Override
+    public int size() {
+        return count();
+    }
+
+    @Override
+    public IndexStats getStats() {
+        return IndexStats.builder()
+            .type(getClass().getSimpleName())
+            .size(count())
+            .depth(depth())
+            .estimatedMemoryBytes(estimatedMemoryBytes())
+            .queries(queries.sum())
+            .examinedEntries(examinedEntries.sum())
+            .build();
+    }
+
+    protected abstract void insert(long id, int minX, int minY, int maxX, int maxY);
+
+    protected abstract void remove(long id);
+
+    protected void move(long id, int minX, int minY, int maxX, int maxY) {
+        remove(id);
+        insert(id, minX, minY, maxX, maxY);
+    }
+
+    protected void load(long[] ids, int[] bounds, int count) {
+        for (int i = 0, b = 0; i < count; i++, b += 4) {
+            insert(ids[i], bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+        }
+    }
+
+    /**
+     * Reports ids of entries fully inside the area and returns how many entries and nodes were examined.
+     */
+    protected abstract int search(int minX, int minY, int maxX, int maxY, LongConsumer consumer);
+
+    protected abstract boolean contains(long id);
+
+    protected abstract int count();
+
+    protected abstract void clear();
+
+    protected abstract int depth();
+
+    protected abstract long estimatedMemoryBytes();
+}
@@ -0,0 +1,207 @@
+package com.miro.widgetservice.struct;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Uniform grid (spatial hash). A widget is registered in every cell it overlaps and reported
+ * only from the cell holding its lower left corner. Widgets spanning more than
+ * {@code maxCellsPerWidget} cells are kept aside and checked on every query.
+ */
+public class GridStorage extends AbstractSpatialIndex {
+
+    private static final long CELL_BYTES = 16 + 32 + 24 + 16 + 16;
+
+    private static final long BOUNDS_ENTRY_BYTES = 40 + 16 + 32;
+
+    private final int cellSize;
+
+    private final int maxCellsPerWidget;
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    private final Map<Long, int[]> boundsById = new HashMap<>();
+
+    private final Cell oversized = new Cell();
+
+    public GridStorage(int cellSize, int maxCellsPerWidget) {
+        if (cellSize <= 0 || maxCellsPerWidget <= 0) {
+            throw new IllegalArgumentException("Grid cell size and max cells per widget must be positive");
+        }
+        this.cellSize = cellSize;
+        this.maxCellsPerWidget = maxCellsPerWidget;
+    }
+
+    @Override
+    protected void insert(long id, int minX, int minY, int maxX, int maxY) {
+        int cellX1 = cell(minX);
+        int cellY1 = cell(minY);
+        int cellX2 = cell(maxX);
+        int cellY2 = cell(maxY);
+        boundsById.put(id, new int[] {minX, minY, maxX, maxY});
+
+        if (isOversized(cellX1, cellY1, cellX2, cellY2)) {
+            oversized.add(id, minX, minY, maxX, maxY);
+            return;
+        }
+        for (int cellX = cellX1; cellX <= cellX2; cellX++) {
+            for (int cellY = cellY1; cellY <= cellY2; cellY++) {
+                cells.computeIfAbsent(key(cellX, cellY), k -> new Cell()).add(id, minX, minY, maxX, maxY);
+            }
+        }
+    }
+
+    @Override
+    protected void remove(long id) {
+        int[] bounds = boundsById.remove(id);
+        int cellX1 = cell(bounds[0]);
+        int cellY1 = cell(bounds[1]);
+        int cellX2 = cell(bounds[2]);
+        int cellY2 = cell(bounds[3]);
+
+        if (isOversized(cellX1, cellY1, cellX2, cellY2)) {
+            oversized.remove(id);
+            return;
+        }
+        for (int cellX = cellX1; cellX <= cellX2; cellX++) {
+            for (int cellY = cellY1; cellY <= cellY2; cellY++) {
+                long key = key(cellX, cellY);
+                Cell cell = cells.get(key);
+                if (cell != null && cell.remove(id) && cell.count == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected int search(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        int examined = oversized.report(minX, minY, maxX, maxY, consumer, Integer.MIN_VALUE, Integer.MIN_VALUE);
+
+        int cellX1 = cell(minX);
+        int cellY1 = cell(minY);
+        int cellX2 = cell(maxX);
+        int cellY2 = cell(maxY);
+        long queryCells = ((long)cellX2 - cellX1 + 1) * ((long)cellY2 - cellY1 + 1);
+
+        if (queryCells > cells.size()) {
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                int cellX = (int)(entry.getKey() >> 32);
+                int cellY = (int)(long)entry.getKey();
+                if (cellX >= cellX1 && cellX <= cellX2 && cellY >= cellY1 && cellY <= cellY2) {
+                    examined += entry.getValue().report(minX, minY, maxX, maxY, consumer, cellX, cellY);
+                }
+            }
+            return examined + cells.size();
+        }
+
+        for (int cellX = cellX1; cellX <= cellX2; cellX++) {
+            for (int cellY = cellY1; cellY <= cellY2; cellY++) {
+                Cell cell = cells.get(key(cellX, cellY));
+                examined++;
+                if (cell != null) {
+                    examined += cell.report(minX, minY, maxX, maxY, consumer, cellX, cellY);
+                }
+            }
+        }
+        return examined;
+    }
+
+    @Override
+    protected boolean contains(long id) {
+        return boundsById.containsKey(id);
+    }
+
+    @Override
+    protected int count() {
+        return boundsById.size();
+    }
+
+    @Override
+    protected void clear() {
+        boundsById.clear();
+        cells.clear();
+        oversized.count = 0;
+    }
+
+    @Override
+    protected int depth() {
+        return 1;
+    }
+
+    @Override
+    protected long estimatedMemoryBytes() {
+        long bytes = oversized.estimatedMemoryBytes() + boundsById.size() * BOUNDS_ENTRY_BYTES;
+        for (Cell cell : cells.values()) {
+            bytes += CELL_BYTES + cell.estimatedMemoryBytes();
+        }
+        return bytes;
+    }
+
+    private boolean isOversized(int cellX1, int cellY1, int cellX2, int cellY2) {
+        return ((long)cellX2 - cellX1 + 1) * ((long)cellY2 - cellY1 + 1) > maxCellsPerWidget;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private long key(int cellX, int cellY) {
+        return ((long)cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private final class Cell {
+
+        private long[] ids = new long[4];
+
+        private int[] bounds = new int[16];
+
+        private int count;
+
+        private void add(long id, int minX, int minY, int maxX, int maxY) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                bounds = Arrays.copyOf(bounds, count * 8);
+            }
+            int b = count * 4;
+            ids[count] = id;
+            bounds[b] = minX;
+            bounds[b + 1] = minY;
+            bounds[b + 2] = maxX;
+            bounds[b + 3] = maxY;
+            count++;
+        }
+
+        private boolean remove(long id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    int last = --count;
+                    ids[i] = ids[last];
+                    System.arraycopy(bounds, last * 4, bounds, i * 4, 4);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int report(int minX, int minY, int maxX, int maxY, LongConsumer consumer, int cellX, int cellY) {
+            for (int i = 0, b = 0; i < count; i++, b += 4) {
+                if (minX <= bounds[b] && minY <= bounds[b + 1] && maxX >= bounds[b + 2] && maxY >= bounds[b + 3]
+                    && isHomeCell(b, cellX, cellY)) {
+                    consumer.accept(ids[i]);
+                }
+            }
+            return count;
+        }
+
+        private boolean isHomeCell(int b, int cellX, int cellY) {
+            return this == oversized || (cell(bounds[b]) == cellX && cell(bounds[b + 1]) == cellY);
+        }
+
+        private long estimatedMemoryBytes() {
+            return 16L + ids.length * (long)Long.BYTES + 16L + bounds.length * (long)Integer.BYTES;
+        }
+    }
+}
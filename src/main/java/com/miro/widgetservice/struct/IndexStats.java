@@ -0,0 +1,29 @@
+package com.miro.widgetservice.struct;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class IndexStats {
+
+    String type;
+
+    int size;
+
+    int depth;
+
+    long estimatedMemoryBytes;
+
+    long queries;
+
+    long examinedEntries;
+
+    public double getAverageQueryCost() {
+        return queries == 0 ? 0 : (double)examinedEntries / queries;
+    }
+
+    public double getBytesPerEntry() {
+        return size == 0 ? 0 : (double)estimatedMemoryBytes / size;
+    }
+}
@@ -0,0 +1,732 @@
+package com.miro.widgetservice.struct;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.LongConsumer;
+
+/**
+ * Mutable R-tree over exact {@code int} rectangles keyed by {@code long} ids.
+ * Nodes are updated in place and recycled through a pool, splits follow the R*-tree
+ * axis/distribution choice. Not thread safe.
+ */
+public class IntRTree {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private static final int NO_NODE = -1;
+
+    private static final int SORT_INDEX_BITS = 29;
+
+    private static final int MAX_BULK_LOAD_SIZE = (1 << SORT_INDEX_BITS) - 1;
+
+    private final int maxEntries;
+
+    private final int minEntries;
+
+    private final LongIntHashMap leafById = new LongIntHashMap(NO_NODE);
+
+    private final Deque<Node> freeNodes = new ArrayDeque<>();
+
+    private Node[] nodesByHandle = new Node[16];
+
+    private int allocatedNodes;
+
+    private Node root;
+
+    private int size;
+
+    private final int[] order;
+
+    private final int[] sortKeys;
+
+    private final int[] prefixBounds;
+
+    private final int[] suffixBounds;
+
+    private final int[] bestOrder;
+
+    private final int[] scratchBounds;
+
+    private final long[] scratchIds;
+
+    private final Node[] scratchChildren;
+
+    private long[] reinsertIds = new long[16];
+
+    private int[] reinsertBounds = new int[64];
+
+    private int reinsertCount;
+
+    public IntRTree() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public IntRTree(int maxEntries) {
+        if (maxEntries < 4) {
+            throw new IllegalArgumentException("Max entries must be at least 4");
+        }
+        this.maxEntries = maxEntries;
+        this.minEntries = Math.max(2, maxEntries * 2 / 5);
+
+        int capacity = maxEntries + 1;
+        this.order = new int[capacity];
+        this.sortKeys = new int[capacity];
+        this.prefixBounds = new int[capacity * 4];
+        this.suffixBounds = new int[capacity * 4];
+        this.bestOrder = new int[capacity];
+        this.scratchBounds = new int[capacity * 4];
+        this.scratchIds = new long[capacity];
+        this.scratchChildren = new Node[capacity];
+
+        this.root = newNode(true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long id) {
+        return leafById.containsKey(id);
+    }
+
+    public int height() {
+        int height = 1;
+        Node node = root;
+        while (!node.leaf) {
+            node = node.children[0];
+            height++;
+        }
+        return height;
+    }
+
+    public int nodeCount() {
+        return allocatedNodes - freeNodes.size();
+    }
+
+    public long estimatedMemoryBytes() {
+        int capacity = maxEntries + 1;
+        long nodeBytes = 48L + 16 + capacity * 4L * Integer.BYTES + 16 + capacity * (long)Long.BYTES + 16 + capacity * 4L;
+        return allocatedNodes * nodeBytes + nodesByHandle.length * 4L + leafById.estimatedMemoryBytes();
+    }
+
+    public void put(long id, int minX, int minY, int maxX, int maxY) {
+        int handle = leafById.get(id);
+        if (handle != NO_NODE) {
+            Node leaf = nodesByHandle[handle];
+            int index = indexOfId(leaf, id);
+            if (leaf == root || contains(leaf.parent.bounds, leaf.indexInParent * 4, minX, minY, maxX, maxY)) {
+                setBounds(leaf.bounds, index * 4, minX, minY, maxX, maxY);
+                return;
+            }
+            removeEntry(leaf, index);
+            condense(leaf);
+        } else {
+            size++;
+        }
+
+        insertLeafEntry(id, minX, minY, maxX, maxY);
+        flushReinserts();
+    }
+
+    public boolean remove(long id) {
+        int handle = leafById.get(id);
+        if (handle == NO_NODE) {
+            return false;
+        }
+        Node leaf = nodesByHandle[handle];
+        removeEntry(leaf, indexOfId(leaf, id));
+        size--;
+        condense(leaf);
+        flushReinserts();
+        return true;
+    }
+
+    public void clear() {
+        leafById.clear();
+        freeNodes.clear();
+        nodesByHandle = new Node[16];
+        allocatedNodes = 0;
+        size = 0;
+        root = newNode(true);
+    }
+
+    /**
+     * Replaces the content with the given entries packed bottom-up with Sort-Tile-Recursive.
+     * Entry {@code i} has id {@code ids[i]} and bounds {@code bounds[4 * i .. 4 * i + 3]}.
+     */
+    public void load(long[] ids, int[] bounds, int count) {
+        if (count > MAX_BULK_LOAD_SIZE) {
+            throw new IllegalArgumentException("Too many entries for bulk load: " + count);
+        }
+        clear();
+        if (count == 0) {
+            return;
+        }
+        release(root);
+
+        long[] sortScratch = new long[count];
+        Node[] level = packLevel(bounds, count, ids, null, sortScratch);
+        while (level.length > 1) {
+            int[] levelBounds = new int[level.length * 4];
+            for (int i = 0; i < level.length; i++) {
+                writeUnion(level[i], levelBounds, i * 4);
+            }
+            level = packLevel(levelBounds, level.length, null, level, sortScratch);
+        }
+        root = level[0];
+        size = count;
+    }
+
+    /**
+     * Reports ids of entries fully inside the area and returns the number of examined node entries.
+     */
+    public int searchContained(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        if (size == 0) {
+            return 0;
+        }
+        return searchContained(root, minX, minY, maxX, maxY, consumer);
+    }
+
+    private int searchContained(Node node, int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        int[] bounds = node.bounds;
+        int examined = node.count;
+        for (int i = 0, b = 0; i < node.count; i++, b += 4) {
+            if (node.leaf) {
+                if (contains(minX, minY, maxX, maxY, bounds, b)) {
+                    consumer.accept(node.ids[i]);
+                }
+            } else if (contains(minX, minY, maxX, maxY, bounds, b)) {
+                examined += reportAll(node.children[i], consumer);
+            } else if (intersects(bounds, b, minX, minY, maxX, maxY)) {
+                examined += searchContained(node.children[i], minX, minY, maxX, maxY, consumer);
+            }
+        }
+        return examined;
+    }
+
+    private int reportAll(Node node, LongConsumer consumer) {
+        if (node.leaf) {
+            for (int i = 0; i < node.count; i++) {
+                consumer.accept(node.ids[i]);
+            }
+            return node.count;
+        }
+        int examined = node.count;
+        for (int i = 0; i < node.count; i++) {
+            examined += reportAll(node.children[i], consumer);
+        }
+        return examined;
+    }
+
+    private Node[] packLevel(int[] bounds, int count, long[] ids, Node[] children, long[] sortScratch) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int nodeCount = ceilDiv(count, maxEntries);
+        int slabCount = (int)Math.ceil(Math.sqrt(nodeCount));
+        sortByCenter(bounds, order, 0, count, 0, sortScratch);
+
+        Node[] nodes = new Node[nodeCount + slabCount];
+        int created = 0;
+        for (int slab = 0; slab < slabCount; slab++) {
+            int from = evenSplit(count, slabCount, slab);
+            int to = evenSplit(count, slabCount, slab + 1);
+            if (from == to) {
+                continue;
+            }
+            sortByCenter(bounds, order, from, to, 1, sortScratch);
+
+            int slabSize = to - from;
+            int groups = ceilDiv(slabSize, maxEntries);
+            for (int group = 0; group < groups; group++) {
+                Node node = newNode(ids != null);
+                int groupFrom = from + evenSplit(slabSize, groups, group);
+                int groupTo = from + evenSplit(slabSize, groups, group + 1);
+                for (int i = groupFrom; i < groupTo; i++) {
+                    int item = order[i];
+                    int index = node.count++;
+                    System.arraycopy(bounds, item * 4, node.bounds, index * 4, 4);
+                    if (ids != null) {
+                        node.ids[index] = ids[item];
+                        leafById.put(ids[item], node.handle);
+                    } else {
+                        Node child = children[item];
+                        node.children[index] = child;
+                        child.parent = node;
+                        child.indexInParent = index;
+                    }
+                }
+                nodes[created++] = node;
+            }
+        }
+        return Arrays.copyOf(nodes, created);
+    }
+
+    private static void sortByCenter(int[] bounds, int[] order, int from, int to, int axis, long[] sortScratch) {
+        for (int i = from; i < to; i++) {
+            int b = order[i] * 4 + axis;
+            long center = (long)bounds[b] + bounds[b + 2] - 2L * Integer.MIN_VALUE;
+            sortScratch[i] = (center << SORT_INDEX_BITS) | order[i];
+        }
+        Arrays.sort(sortScratch, from, to);
+        for (int i = from; i < to; i++) {
+            order[i] = (int)(sortScratch[i] & MAX_BULK_LOAD_SIZE);
+        }
+    }
+
+    private static int evenSplit(int count, int parts, int part) {
+        return (int)((long)count * part / parts);
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private void insertLeafEntry(long id, int minX, int minY, int maxX, int maxY) {
+        Node leaf = chooseLeaf(minX, minY, maxX, maxY);
+        int index = leaf.count++;
+        leaf.ids[index] = id;
+        setBounds(leaf.bounds, index * 4, minX, minY, maxX, maxY);
+        leafById.put(id, leaf.handle);
+
+        if (leaf.count > maxEntries) {
+            split(leaf);
+        } else {
+            extendUpwards(leaf, minX, minY, maxX, maxY);
+        }
+    }
+
+    private Node chooseLeaf(int minX, int minY, int maxX, int maxY) {
+        Node node = root;
+        while (!node.leaf) {
+            int best = node.children[0].leaf
+                ? chooseByOverlap(node, minX, minY, maxX, maxY)
+                : chooseByArea(node, minX, minY, maxX, maxY);
+            node = node.children[best];
+        }
+        return node;
+    }
+
+    private int chooseByArea(Node node, int minX, int minY, int maxX, int maxY) {
+        int[] bounds = node.bounds;
+        int best = 0;
+        double bestEnlargement = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+        for (int i = 0, b = 0; i < node.count; i++, b += 4) {
+            double area = area(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            double enlargement = unionArea(bounds, b, minX, minY, maxX, maxY) - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    private int chooseByOverlap(Node node, int minX, int minY, int maxX, int maxY) {
+        int[] bounds = node.bounds;
+        int best = 0;
+        double bestOverlap = Double.MAX_VALUE;
+        double bestEnlargement = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+        for (int i = 0, b = 0; i < node.count; i++, b += 4) {
+            int uMinX = Math.min(bounds[b], minX);
+            int uMinY = Math.min(bounds[b + 1], minY);
+            int uMaxX = Math.max(bounds[b + 2], maxX);
+            int uMaxY = Math.max(bounds[b + 3], maxY);
+
+            double overlapEnlargement = 0;
+            for (int j = 0, o = 0; j < node.count; j++, o += 4) {
+                if (j != i) {
+                    overlapEnlargement += overlap(uMinX, uMinY, uMaxX, uMaxY, bounds, o)
+                        - overlap(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds, o);
+                }
+            }
+            double area = area(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            double enlargement = area(uMinX, uMinY, uMaxX, uMaxY) - area;
+
+            if (overlapEnlargement < bestOverlap
+                || (overlapEnlargement == bestOverlap && enlargement < bestEnlargement)
+                || (overlapEnlargement == bestOverlap && enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestOverlap = overlapEnlargement;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    private void extendUpwards(Node node, int minX, int minY, int maxX, int maxY) {
+        while (node.parent != null) {
+            Node parent = node.parent;
+            int b = node.indexInParent * 4;
+            int[] bounds = parent.bounds;
+            if (contains(bounds, b, minX, minY, maxX, maxY)) {
+                return;
+            }
+            bounds[b] = Math.min(bounds[b], minX);
+            bounds[b + 1] = Math.min(bounds[b + 1], minY);
+            bounds[b + 2] = Math.max(bounds[b + 2], maxX);
+            bounds[b + 3] = Math.max(bounds[b + 3], maxY);
+            node = parent;
+        }
+    }
+
+    private void split(Node node) {
+        while (node.count > maxEntries) {
+            int splitIndex = chooseSplit(node);
+            Node sibling = newNode(node.leaf);
+            redistribute(node, sibling, splitIndex);
+
+            Node parent = node.parent;
+            if (parent == null) {
+                parent = newNode(false);
+                root = parent;
+                appendChild(parent, node);
+            } else {
+                writeUnion(node, parent.bounds, node.indexInParent * 4);
+            }
+            appendChild(parent, sibling);
+
+            if (parent.count <= maxEntries) {
+                tightenUpwards(parent);
+                return;
+            }
+            node = parent;
+        }
+    }
+
+    private int chooseSplit(Node node) {
+        int total = node.count;
+        int[] bounds = node.bounds;
+        int distributions = total - 2 * minEntries + 1;
+
+        int bestAxis = 0;
+        double bestMargin = Double.MAX_VALUE;
+        for (int axis = 0; axis < 2; axis++) {
+            double margin = 0;
+            for (int byUpper = 0; byUpper < 2; byUpper++) {
+                sortEntries(bounds, total, axis + byUpper * 2);
+                computePrefixSuffix(bounds, total);
+                for (int k = minEntries; k < minEntries + distributions; k++) {
+                    margin += margin(prefixBounds, (k - 1) * 4) + margin(suffixBounds, k * 4);
+                }
+            }
+            if (margin < bestMargin) {
+                bestMargin = margin;
+                bestAxis = axis;
+            }
+        }
+
+        int bestSplit = minEntries;
+        double bestOverlap = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+        for (int byUpper = 0; byUpper < 2; byUpper++) {
+            sortEntries(bounds, total, bestAxis + byUpper * 2);
+            computePrefixSuffix(bounds, total);
+            for (int k = minEntries; k < minEntries + distributions; k++) {
+                int p = (k - 1) * 4;
+                int s = k * 4;
+                double overlap = overlap(prefixBounds[p], prefixBounds[p + 1], prefixBounds[p + 2], prefixBounds[p + 3],
+                    suffixBounds, s);
+                double area = area(prefixBounds[p], prefixBounds[p + 1], prefixBounds[p + 2], prefixBounds[p + 3])
+                    + area(suffixBounds[s], suffixBounds[s + 1], suffixBounds[s + 2], suffixBounds[s + 3]);
+                if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+                    bestOverlap = overlap;
+                    bestArea = area;
+                    bestSplit = k;
+                    System.arraycopy(order, 0, bestOrder, 0, total);
+                }
+            }
+        }
+        return bestSplit;
+    }
+
+    private void sortEntries(int[] bounds, int total, int coordinate) {
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+            sortKeys[i] = bounds[i * 4 + coordinate];
+        }
+        for (int i = 1; i < total; i++) {
+            int entry = order[i];
+            int key = sortKeys[entry];
+            int j = i - 1;
+            while (j >= 0 && sortKeys[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = entry;
+        }
+    }
+
+    private void computePrefixSuffix(int[] bounds, int total) {
+        for (int i = 0; i < total; i++) {
+            int b = order[i] * 4;
+            int p = i * 4;
+            if (i == 0) {
+                System.arraycopy(bounds, b, prefixBounds, 0, 4);
+            } else {
+                prefixBounds[p] = Math.min(prefixBounds[p - 4], bounds[b]);
+                prefixBounds[p + 1] = Math.min(prefixBounds[p - 3], bounds[b + 1]);
+                prefixBounds[p + 2] = Math.max(prefixBounds[p - 2], bounds[b + 2]);
+                prefixBounds[p + 3] = Math.max(prefixBounds[p - 1], bounds[b + 3]);
+            }
+        }
+        for (int i = total - 1; i >= 0; i--) {
+            int b = order[i] * 4;
+            int s = i * 4;
+            if (i == total - 1) {
+                System.arraycopy(bounds, b, suffixBounds, s, 4);
+            } else {
+                suffixBounds[s] = Math.min(suffixBounds[s + 4], bounds[b]);
+                suffixBounds[s + 1] = Math.min(suffixBounds[s + 5], bounds[b + 1]);
+                suffixBounds[s + 2] = Math.max(suffixBounds[s + 6], bounds[b + 2]);
+                suffixBounds[s + 3] = Math.max(suffixBounds[s + 7], bounds[b + 3]);
+            }
+        }
+    }
+
+    private void redistribute(Node node, Node sibling, int splitIndex) {
+        int total = node.count;
+        System.arraycopy(node.bounds, 0, scratchBounds, 0, total * 4);
+        if (node.leaf) {
+            System.arraycopy(node.ids, 0, scratchIds, 0, total);
+        } else {
+            System.arraycopy(node.children, 0, scratchChildren, 0, total);
+        }
+
+        node.count = 0;
+        for (int i = 0; i < total; i++) {
+            int source = bestOrder[i];
+            Node target = i < splitIndex ? node : sibling;
+            int index = target.count++;
+            System.arraycopy(scratchBounds, source * 4, target.bounds, index * 4, 4);
+            if (node.leaf) {
+                target.ids[index] = scratchIds[source];
+                leafById.put(scratchIds[source], target.handle);
+            } else {
+                Node child = scratchChildren[source];
+                target.children[index] = child;
+                child.parent = target;
+                child.indexInParent = index;
+            }
+        }
+        if (!node.leaf) {
+            Arrays.fill(node.children, node.count, total, null);
+            Arrays.fill(scratchChildren, 0, total, null);
+        }
+    }
+
+    private void appendChild(Node parent, Node child) {
+        int index = parent.count++;
+        parent.children[index] = child;
+        child.parent = parent;
+        child.indexInParent = index;
+        writeUnion(child, parent.bounds, index * 4);
+    }
+
+    private void removeEntry(Node leaf, int index) {
+        int last = leaf.count - 1;
+        leafById.remove(leaf.ids[index]);
+        if (index != last) {
+            leaf.ids[index] = leaf.ids[last];
+            System.arraycopy(leaf.bounds, last * 4, leaf.bounds, index * 4, 4);
+        }
+        leaf.count--;
+    }
+
+    private void removeChild(Node parent, int index) {
+        int last = parent.count - 1;
+        if (index != last) {
+            Node moved = parent.children[last];
+            parent.children[index] = moved;
+            moved.indexInParent = index;
+            System.arraycopy(parent.bounds, last * 4, parent.bounds, index * 4, 4);
+        }
+        parent.children[last] = null;
+        parent.count--;
+    }
+
+    private void condense(Node node) {
+        while (node.parent != null) {
+            Node parent = node.parent;
+            if (node.count < minEntries) {
+                removeChild(parent, node.indexInParent);
+                collectForReinsert(node);
+            } else if (!writeUnion(node, parent.bounds, node.indexInParent * 4)) {
+                break;
+            }
+            node = parent;
+        }
+
+        while (!root.leaf && root.count == 1) {
+            Node child = root.children[0];
+            root.children[0] = null;
+            root.count = 0;
+            release(root);
+            child.parent = null;
+            child.indexInParent = 0;
+            root = child;
+        }
+        if (!root.leaf && root.count == 0) {
+            root.leaf = true;
+        }
+    }
+
+    private void tightenUpwards(Node node) {
+        while (node.parent != null && writeUnion(node, node.parent.bounds, node.indexInParent * 4)) {
+            node = node.parent;
+        }
+    }
+
+    private void collectForReinsert(Node node) {
+        if (node.leaf) {
+            for (int i = 0; i < node.count; i++) {
+                ensureReinsertCapacity();
+                reinsertIds[reinsertCount] = node.ids[i];
+                System.arraycopy(node.bounds, i * 4, reinsertBounds, reinsertCount * 4, 4);
+                leafById.remove(node.ids[i]);
+                reinsertCount++;
+            }
+        } else {
+            for (int i = 0; i < node.count; i++) {
+                collectForReinsert(node.children[i]);
+                node.children[i] = null;
+            }
+        }
+        node.count = 0;
+        release(node);
+    }
+
+    private void flushReinserts() {
+        while (reinsertCount > 0) {
+            int index = --reinsertCount;
+            int b = index * 4;
+            insertLeafEntry(reinsertIds[index], reinsertBounds[b], reinsertBounds[b + 1], reinsertBounds[b + 2],
+                reinsertBounds[b + 3]);
+        }
+    }
+
+    private void ensureReinsertCapacity() {
+        if (reinsertCount == reinsertIds.length) {
+            reinsertIds = Arrays.copyOf(reinsertIds, reinsertIds.length * 2);
+            reinsertBounds = Arrays.copyOf(reinsertBounds, reinsertBounds.length * 2);
+        }
+    }
+
+    private boolean writeUnion(Node node, int[] target, int offset) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int[] bounds = node.bounds;
+        for (int i = 0, b = 0; i < node.count; i++, b += 4) {
+            minX = Math.min(minX, bounds[b]);
+            minY = Math.min(minY, bounds[b + 1]);
+            maxX = Math.max(maxX, bounds[b + 2]);
+            maxY = Math.max(maxY, bounds[b + 3]);
+        }
+        boolean changed = target[offset] != minX || target[offset + 1] != minY
+            || target[offset + 2] != maxX || target[offset + 3] != maxY;
+        setBounds(target, offset, minX, minY, maxX, maxY);
+        return changed;
+    }
+
+    private int indexOfId(Node leaf, long id) {
+        for (int i = 0; i < leaf.count; i++) {
+            if (leaf.ids[i] == id) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Entry " + id + " is missing in its leaf");
+    }
+
+    private Node newNode(boolean leaf) {
+        Node node = freeNodes.poll();
+        if (node == null) {
+            if (allocatedNodes == nodesByHandle.length) {
+                nodesByHandle = Arrays.copyOf(nodesByHandle, nodesByHandle.length * 2);
+            }
+            node = new Node(allocatedNodes, maxEntries + 1);
+            nodesByHandle[allocatedNodes++] = node;
+        }
+        node.leaf = leaf;
+        node.count = 0;
+        node.parent = null;
+        node.indexInParent = 0;
+        return node;
+    }
+
+    private void release(Node node) {
+        node.parent = null;
+        freeNodes.push(node);
+    }
+
+    private static void setBounds(int[] bounds, int offset, int minX, int minY, int maxX, int maxY) {
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = maxX;
+        bounds[offset + 3] = maxY;
+    }
+
+    private static boolean contains(int[] outer, int o, int minX, int minY, int maxX, int maxY) {
+        return outer[o] <= minX && outer[o + 1] <= minY && outer[o + 2] >= maxX && outer[o + 3] >= maxY;
+    }
+
+    private static boolean contains(int minX, int minY, int maxX, int maxY, int[] inner, int i) {
+        return minX <= inner[i] && minY <= inner[i + 1] && maxX >= inner[i + 2] && maxY >= inner[i + 3];
+    }
+
+    private static boolean intersects(int[] bounds, int b, int minX, int minY, int maxX, int maxY) {
+        return bounds[b] <= maxX && bounds[b + 2] >= minX && bounds[b + 1] <= maxY && bounds[b + 3] >= minY;
+    }
+
+    private static double area(int minX, int minY, int maxX, int maxY) {
+        return ((double)maxX - minX) * ((double)maxY - minY);
+    }
+
+    private static double margin(int[] bounds, int b) {
+        return ((double)bounds[b + 2] - bounds[b]) + ((double)bounds[b + 3] - bounds[b + 1]);
+    }
+
+    private static double unionArea(int[] bounds, int b, int minX, int minY, int maxX, int maxY) {
+        return area(Math.min(bounds[b], minX), Math.min(bounds[b + 1], minY),
+            Math.max(bounds[b + 2], maxX), Math.max(bounds[b + 3], maxY));
+    }
+
+    private static double overlap(int minX, int minY, int maxX, int maxY, int[] bounds, int b) {
+        double width = (double)Math.min(maxX, bounds[b + 2]) - Math.max(minX, bounds[b]);
+        double height = (double)Math.min(maxY, bounds[b + 3]) - Math.max(minY, bounds[b + 1]);
+        return width <= 0 || height <= 0 ? 0 : width * height;
+    }
+
+    private static final class Node {
+
+        private final int handle;
+
+        private final int[] bounds;
+
+        private final long[] ids;
+
+        private final Node[] children;
+
+        private boolean leaf;
+
+        private int count;
+
+        private Node parent;
+
+        private int indexInParent;
+
+        private Node(int handle, int capacity) {
+            this.handle = handle;
+            this.bounds = new int[capacity * 4];
+            this.ids = new long[capacity];
+            this.children = new Node[capacity];
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.miro.widgetservice.struct;
+
+import java.util.function.LongConsumer;
+
+public class IntRTreeStorage extends AbstractSpatialIndex {
+
+    private final IntRTree coordinateTree = new IntRTree();
+
+    @Override
+    protected void insert(long id, int minX, int minY, int maxX, int maxY) {
+        coordinateTree.put(id, minX, minY, maxX, maxY);
+    }
+
+    @Override
+    protected void remove(long id) {
+        coordinateTree.remove(id);
+    }
+
+    @Override
+    protected void move(long id, int minX, int minY, int maxX, int maxY) {
+        coordinateTree.put(id, minX, minY, maxX, maxY);
+    }
+
+    @Override
+    protected void load(long[] ids, int[] bounds, int count) {
+        coordinateTree.load(ids, bounds, count);
+    }
+
+    @Override
+    protected int search(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        return coordinateTree.searchContained(minX, minY, maxX, maxY, consumer);
+    }
+
+    @Override
+    protected boolean contains(long id) {
+        return coordinateTree.contains(id);
+    }
+
+    @Override
+    protected int count() {
+        return coordinateTree.size();
+    }
+
+    @Override
+    protected void clear() {
+        coordinateTree.clear();
+    }
+
+    @Override
+    protected int depth() {
+        return coordinateTree.height();
+    }
+
+    @Override
+    protected long estimatedMemoryBytes() {
+        return coordinateTree.estimatedMemoryBytes();
+    }
+}
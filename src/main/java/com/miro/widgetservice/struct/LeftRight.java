@@ -0,0 +1,176 @@
+package com.miro.widgetservice.struct;
+
+import com.miro.widgetservice.jfr.RecordedLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Left-Right concurrency control over two replicas of the same mutable state.
+ * Readers never lock or wait: they announce themselves in a read indicator and read the published replica.
+ * A writer applies its mutation to the hidden replica, publishes it as the next version, waits until
+ * no reader is left on the previous one and applies the same mutation there.
+ * Mutations are therefore executed twice and must be deterministic: ids, timestamps and other
+ * generated values have to be computed before calling {@link #write(Function)}.
+ * Replicas need no locks of their own: only the writer holding the write lock changes a replica,
+ * and only while no reader is on it.
+ */
+public class LeftRight<T> {
+
+    private static final int STRIPES = 64;
+
+    // one counter per 128 bytes to keep stripes on separate cache lines
+    private static final int PADDING = 16;
+
+    // busy waits for readers before yielding, a virtual thread writer gives its carrier to other virtual threads
+    private static final int SPINS_BEFORE_YIELD = 1_000;
+
+    private final Object[] replicas;
+
+    private final AtomicLongArray[] readIndicators = {
+        new AtomicLongArray(STRIPES * PADDING), new AtomicLongArray(STRIPES * PADDING)};
+
+    private final Lock writeLock = new RecordedLock(new ReentrantLock(), "LeftRight", "write");
+
+    private final WriteTimings writeTimings;
+
+    private volatile int published;
+
+    private volatile int versionIndex;
+
+    private volatile long version;
+
+    public LeftRight(T left, T right) {
+        this(left, right, (lockWaitNanos, readersWaitNanos, lockHoldNanos) -> {
+        });
+    }
+
+    public LeftRight(T left, T right, WriteTimings writeTimings) {
+        this.replicas = new Object[] {left, right};
+        this.writeTimings = writeTimings;
+    }
+
+    public <R> R read(Function<T, R> reader) {
+        int index = versionIndex;
+        int stripe = stripe();
+        readIndicators[index].incrementAndGet(stripe);
+        try {
+            return reader.apply(replica(published));
+        } finally {
+            readIndicators[index].decrementAndGet(stripe);
+        }
+    }
+
+    /**
+     * Applies the mutation to both replicas and returns the result of the second application.
+     * A failing mutation is applied to both replicas as well, so they stay identical, and then rethrown.
+     */
+    public <R> R write(Function<T, R> writer) {
+        return write(writer, () -> {
+        });
+    }
+
+    /**
+     * Same as {@link #write(Function)}, {@code beforeWrite} runs under the write lock before the mutation
+     * touches either replica, so its calls are in the order of the writes, failing ones included.
+     * If it throws, neither replica is changed.
+     */
+    public <R> R write(Function<T, R> writer, Runnable beforeWrite) {
+        long requested = System.nanoTime();
+        writeLock.lock();
+        long acquired = System.nanoTime();
+        long readersWait = 0;
+        try {
+            beforeWrite.run();
+            int hidden = 1 - published;
+            RuntimeException failure = null;
+            try {
+                writer.apply(replica(hidden));
+            } catch (RuntimeException exception) {
+                failure = exception;
+            }
+
+            published = hidden;
+            version++;
+            long draining = System.nanoTime();
+            waitForReaders();
+            readersWait = System.nanoTime() - draining;
+
+            R result;
+            try {
+                result = writer.apply(replica(1 - hidden));
+            } catch (RuntimeException exception) {
+                throw failure != null ? failure : exception;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        } finally {
+            long released = System.nanoTime();
+            writeLock.unlock();
+            writeTimings.written(acquired - requested, readersWait, released - acquired);
+        }
+    }
+
+    /**
+     * Reads the published replica while holding the write lock: the result reflects every completed write and
+     * no write starts before the reader returns. Readers are not blocked.
+     */
+    public <R> R readExclusive(Function<T, R> reader) {
+        writeLock.lock();
+        try {
+            return read(reader);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Number of published writes, readers always see the state of one of them.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void waitForReaders() {
+        int current = versionIndex;
+        int next = 1 - current;
+        waitUntilEmpty(readIndicators[next]);
+        versionIndex = next;
+        waitUntilEmpty(readIndicators[current]);
+    }
+
+    private void waitUntilEmpty(AtomicLongArray readIndicator) {
+        for (int i = 0; i < STRIPES * PADDING; i += PADDING) {
+            for (int spins = 0; readIndicator.get(i) != 0; spins++) {
+                if (spins < SPINS_BEFORE_YIELD) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives, after every write, how long it waited for the write lock, how long it waited for readers
+     * to leave the previous replica and how long it held the write lock, in nanoseconds.
+     */
+    @FunctionalInterface
+    public interface WriteTimings {
+
+        void written(long lockWaitNanos, long readersWaitNanos, long lockHoldNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T replica(int index) {
+        return (T)replicas[index];
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().threadId();
+        return (int)((id * 0x9E3779B97F4A7C15L) >>> 58) * PADDING;
+    }
+}
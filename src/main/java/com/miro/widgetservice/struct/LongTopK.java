@@ -0,0 +1,74 @@
+package com.miro.widgetservice.struct;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code k} smallest of the offered values in a bounded binary max-heap,
+ * so selecting them out of {@code m} values costs {@code O(m log k)} and {@code O(k)} memory.
+ */
+public class LongTopK {
+
+    private final int capacity;
+
+    private long[] heap;
+
+    private int size;
+
+    public LongTopK(int capacity, int expectedSize) {
+        this.capacity = capacity;
+        this.heap = new long[Math.max(1, Math.min(capacity, expectedSize))];
+    }
+
+    public void add(long value) {
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int)Math.min(capacity, heap.length * 2L));
+            }
+            heap[size] = value;
+            siftUp(size++);
+        } else if (capacity > 0 && value < heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] toSortedArray() {
+        long[] values = Arrays.copyOf(heap, size);
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index) {
+        long value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (value >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -0,0 +1,278 @@
+package com.miro.widgetservice.struct;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Region quadtree over the whole {@code int} plane. Each widget lives in the smallest quadrant
+ * that fully contains it, so huge frames stay near the root and small widgets sink to leaves.
+ */
+public class QuadTreeStorage extends AbstractSpatialIndex {
+
+    private static final long NODE_BYTES = 48 + 16 + 16 + 16 + 32;
+
+    private final int nodeCapacity;
+
+    private final int maxDepth;
+
+    private final Map<Long, Node> nodeById = new HashMap<>();
+
+    private Node root = newRoot();
+
+    public QuadTreeStorage(int nodeCapacity, int maxDepth) {
+        if (nodeCapacity <= 0 || maxDepth <= 0 || maxDepth > 32) {
+            throw new IllegalArgumentException("Quadtree node capacity must be positive and max depth in 1..32");
+        }
+        this.nodeCapacity = nodeCapacity;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    protected void insert(long id, int minX, int minY, int maxX, int maxY) {
+        Node node = root;
+        while (node.children != null) {
+            Node child = node.childContaining(minX, minY, maxX, maxY);
+            if (child == null) {
+                break;
+            }
+            node.subtreeCount++;
+            node = child;
+        }
+        node.subtreeCount++;
+        node.add(id, minX, minY, maxX, maxY);
+        nodeById.put(id, node);
+
+        if (node.children == null && node.count > nodeCapacity && node.depth < maxDepth) {
+            subdivide(node);
+        }
+    }
+
+    @Override
+    protected void remove(long id) {
+        Node node = nodeById.remove(id);
+        if (node == null) {
+            return;
+        }
+        node.remove(id);
+        for (Node current = node; current != null; current = current.parent) {
+            current.subtreeCount--;
+        }
+        for (Node current = node; current != null; current = current.parent) {
+            if (current.children != null && current.subtreeCount <= nodeCapacity) {
+                merge(current);
+            }
+        }
+    }
+
+    @Override
+    protected int search(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        return search(root, minX, minY, maxX, maxY, consumer);
+    }
+
+    @Override
+    protected boolean contains(long id) {
+        return nodeById.containsKey(id);
+    }
+
+    @Override
+    protected int count() {
+        return nodeById.size();
+    }
+
+    @Override
+    protected void clear() {
+        nodeById.clear();
+        root = newRoot();
+    }
+
+    @Override
+    protected int depth() {
+        return depth(root);
+    }
+
+    @Override
+    protected long estimatedMemoryBytes() {
+        return estimatedMemoryBytes(root) + nodeById.size() * 40L;
+    }
+
+    private int search(Node node, int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        if (minX <= node.minX && minY <= node.minY && maxX >= node.maxX && maxY >= node.maxY) {
+            return reportAll(node, consumer);
+        }
+
+        int examined = node.count;
+        int[] bounds = node.bounds;
+        for (int i = 0, b = 0; i < node.count; i++, b += 4) {
+            if (minX <= bounds[b] && minY <= bounds[b + 1] && maxX >= bounds[b + 2] && maxY >= bounds[b + 3]) {
+                consumer.accept(node.ids[i]);
+            }
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                examined++;
+                if (child.subtreeCount > 0 && child.intersects(minX, minY, maxX, maxY)) {
+                    examined += search(child, minX, minY, maxX, maxY, consumer);
+                }
+            }
+        }
+        return examined;
+    }
+
+    private int reportAll(Node node, LongConsumer consumer) {
+        int examined = node.count;
+        for (int i = 0; i < node.count; i++) {
+            consumer.accept(node.ids[i]);
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                examined += reportAll(child, consumer);
+            }
+        }
+        return examined;
+    }
+
+    private void subdivide(Node node) {
+        long midX = Math.floorDiv(node.minX + (long)node.maxX, 2);
+        long midY = Math.floorDiv(node.minY + (long)node.maxY, 2);
+        int depth = node.depth + 1;
+        node.children = new Node[] {
+            new Node(node, depth, node.minX, node.minY, (int)midX, (int)midY),
+            new Node(node, depth, (int)midX + 1, node.minY, node.maxX, (int)midY),
+            new Node(node, depth, node.minX, (int)midY + 1, (int)midX, node.maxY),
+            new Node(node, depth, (int)midX + 1, (int)midY + 1, node.maxX, node.maxY)
+        };
+
+        long[] ids = Arrays.copyOf(node.ids, node.count);
+        int[] bounds = Arrays.copyOf(node.bounds, node.count * 4);
+        int count = node.count;
+        node.count = 0;
+        node.subtreeCount -= count;
+        for (int i = 0, b = 0; i < count; i++, b += 4) {
+            Node child = node.childContaining(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            Node target = child == null ? node : child;
+            target.add(ids[i], bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            nodeById.put(ids[i], target);
+            node.subtreeCount++;
+            if (child != null) {
+                child.subtreeCount++;
+            }
+        }
+        for (Node child : node.children) {
+            if (child.count > nodeCapacity && child.depth < maxDepth) {
+                subdivide(child);
+            }
+        }
+    }
+
+    private void merge(Node node) {
+        for (Node child : node.children) {
+            if (child.children != null) {
+                merge(child);
+            }
+            for (int i = 0, b = 0; i < child.count; i++, b += 4) {
+                node.add(child.ids[i], child.bounds[b], child.bounds[b + 1], child.bounds[b + 2], child.bounds[b + 3]);
+                nodeById.put(child.ids[i], node);
+            }
+        }
+        node.children = null;
+    }
+
+    private int depth(Node node) {
+        if (node.children == null) {
+            return 1;
+        }
+        int depth = 0;
+        for (Node child : node.children) {
+            depth = Math.max(depth, depth(child));
+        }
+        return depth + 1;
+    }
+
+    private long estimatedMemoryBytes(Node node) {
+        long bytes = NODE_BYTES + node.ids.length * (long)Long.BYTES + node.bounds.length * (long)Integer.BYTES;
+        if (node.children != null) {
+            for (Node child : node.children) {
+                bytes += estimatedMemoryBytes(child);
+            }
+        }
+        return bytes;
+    }
+
+    private static Node newRoot() {
+        return new Node(null, 0, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static final class Node {
+
+        private final Node parent;
+
+        private final int depth;
+
+        private final int minX;
+
+        private final int minY;
+
+        private final int maxX;
+
+        private final int maxY;
+
+        private Node[] children;
+
+        private long[] ids = new long[4];
+
+        private int[] bounds = new int[16];
+
+        private int count;
+
+        private int subtreeCount;
+
+        private Node(Node parent, int depth, int minX, int minY, int maxX, int maxY) {
+            this.parent = parent;
+            this.depth = depth;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private Node childContaining(int minX, int minY, int maxX, int maxY) {
+            for (Node child : children) {
+                if (child.minX <= minX && child.minY <= minY && child.maxX >= maxX && child.maxY >= maxY) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private boolean intersects(int minX, int minY, int maxX, int maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+
+        private void add(long id, int minX, int minY, int maxX, int maxY) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                bounds = Arrays.copyOf(bounds, count * 8);
+            }
+            int b = count * 4;
+            ids[count] = id;
+            bounds[b] = minX;
+            bounds[b + 1] = minY;
+            bounds[b + 2] = maxX;
+            bounds[b + 3] = maxY;
+            count++;
+        }
+
+        private void remove(long id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    int last = --count;
+                    ids[i] = ids[last];
+                    System.arraycopy(bounds, last * 4, bounds, i * 4, 4);
+                    return;
+                }
+            }
+        }
+    }
+}
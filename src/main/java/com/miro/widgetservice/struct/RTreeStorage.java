@@ -1,100 +1,110 @@
 package com.miro.widgetservice.struct;
 
+import com.github.davidmoten.rtree.Entries;
 import com.github.davidmoten.rtree.Entry;
 import com.github.davidmoten.rtree.RTree;
 import com.github.davidmoten.rtree.geometry.Geometries;
-import com.github.davidmoten.rtree.geometry.Geometry;
 import com.github.davidmoten.rtree.geometry.Rectangle;
-import com.miro.widgetservice.dto.SearchAreaDto;
-import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.jfr.AreaSearchEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Service;
 
 @Slf4j
-@Service
-public class RTreeStorage {
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+public class RTreeStorage implements SpatialIndex {
 
-    private final Lock readLock = readWriteLock.readLock();
+    // Entry, boxed id, float Rectangle, share of the leaf node and the geometryMap node
+    private static final long ENTRY_BYTES = 176;
 
-    private final Lock writeLock = readWriteLock.writeLock();
+    private RTree<Long, Rectangle> coordinateTree = RTree.create();
 
-    private RTree<Widget, Geometry> coordinateTree = RTree.create();
+    private Map<Long, Rectangle> geometryMap = new HashMap<>();
 
-    private Map<Long, Geometry> geometryMap = new HashMap<>();
+    private final LongAdder queries = new LongAdder();
 
-    public void putOrReplace(Widget widget) {
-        writeLock.lock();
-        try {
-            deleteIfExist(widget);
+    private final LongAdder examinedEntries = new LongAdder();
 
-            float x1Point = widget.getXPoint().floatValue();
-            float y1Point = widget.getYPoint().floatValue();
-            float x2Point = x1Point + widget.getWidth();
-            float y2Point = y1Point + widget.getHeight();
+    @Override
+    public void putOrReplace(long id, int minX, int minY, int maxX, int maxY) {
+        deleteIfExist(id);
 
-            Rectangle rectangle = Geometries.rectangle(x1Point, y1Point, x2Point, y2Point);
+        Rectangle rectangle = Geometries.rectangle(minX, minY, maxX, maxY);
 
-            coordinateTree = coordinateTree.add(widget, rectangle);
-            geometryMap.put(widget.getId(), rectangle);
-        } finally {
-            writeLock.unlock();
-        }
+        coordinateTree = coordinateTree.add(id, rectangle);
+        geometryMap.put(id, rectangle);
     }
 
-    public void deleteIfExist(Widget widget) {
-        Geometry geometry = geometryMap.get(widget.getId());
-        if (geometry != null) {
-            coordinateTree = coordinateTree.delete(widget, geometry);
-            geometryMap.remove(widget.getId());
+    @Override
+    public void deleteIfExist(long id) {
+        Rectangle rectangle = geometryMap.remove(id);
+        if (rectangle != null) {
+            coordinateTree = coordinateTree.delete(id, rectangle);
         }
     }
 
-    public List<Widget> findInArea(SearchAreaDto searchAreaDto) {
-        readLock.lock();
-        try {
-            Rectangle rectangle = Geometries.rectangle(searchAreaDto.getXPoint1(),
-                searchAreaDto.getYPoint1(),
-                searchAreaDto.getXPoint2(),
-                searchAreaDto.getYPoint2());
-
-            return coordinateTree.search(rectangle)
-                .map(Entry::value)
-                .filter(w -> isInArea(searchAreaDto, w))
-                .sorted((w1, w2) -> w1.getZIndex().compareTo(w2.getZIndex()))
-                .toList()
-                .toBlocking()
-                .first();
-        } finally {
-            readLock.unlock();
-        }
+    @Override
+    public void findInArea(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        AreaSearchEvent event = new AreaSearchEvent();
+        event.begin();
+        Rectangle area = Geometries.rectangle(minX, minY, maxX, maxY);
+        LongConsumer results = event.counting(consumer);
+        long[] examined = new long[1];
+
+        queries.increment();
+        coordinateTree.search(area)
+            .doOnNext(entry -> examined[0]++)
+            .filter(entry -> isInArea(area, entry.geometry()))
+            .map(Entry::value)
+            .toBlocking()
+            .forEach(results::accept);
+        examinedEntries.add(examined[0]);
+        event.finish(getClass().getSimpleName(), minX, minY, maxX, maxY, examined[0]);
     }
 
+    @Override
     public void deleteAll() {
-        writeLock.lock();
-        try {
-            geometryMap = new HashMap<>();
-            coordinateTree = RTree.create();
-        } finally {
-            writeLock.unlock();
+        geometryMap = new HashMap<>();
+        coordinateTree = RTree.create();
+    }
+
+    @Override
+    public void loadAll(long[] ids, int[] bounds, int count) {
+        List<Entry<Long, Rectangle>> entries = new ArrayList<>(count);
+        Map<Long, Rectangle> geometries = new HashMap<>();
+        for (int i = 0, b = 0; i < count; i++, b += 4) {
+            Rectangle rectangle = Geometries.rectangle(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            entries.add(Entries.entry(ids[i], rectangle));
+            geometries.put(ids[i], rectangle);
         }
+        coordinateTree = RTree.create(entries);
+        geometryMap = geometries;
     }
 
-    private boolean isInArea(SearchAreaDto searchAreaDto, Widget widget) {
-        float x1Point = widget.getXPoint();
-        float y1Point = widget.getYPoint();
-        float x2Point = x1Point + widget.getWidth();
-        float y2Point = y1Point + widget.getHeight();
+    @Override
+    public int size() {
+        return geometryMap.size();
+    }
+
+    @Override
+    public IndexStats getStats() {
+        return IndexStats.builder()
+            .type(getClass().getSimpleName())
+            .size(geometryMap.size())
+            .depth(coordinateTree.calculateDepth())
+            .estimatedMemoryBytes(geometryMap.size() * ENTRY_BYTES)
+            .queries(queries.sum())
+            .examinedEntries(examinedEntries.sum())
+            .build();
+    }
 
-        return searchAreaDto.getXPoint1() <= x1Point
-            && searchAreaDto.getXPoint2() >= x2Point
-            && searchAreaDto.getYPoint1() <= y1Point
-            && searchAreaDto.getYPoint2() >= y2Point;
+    private boolean isInArea(Rectangle area, Rectangle rectangle) {
+        return area.x1() <= rectangle.x1()
+            && area.x2() >= rectangle.x2()
+            && area.y1() <= rectangle.y1()
+            && area.y2() >= rectangle.y2();
     }
 }
@@ -0,0 +1,44 @@
+package com.miro.widgetservice.struct;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Splits the plane into {@code columns x rows} tiles starting at the origin. Outer tiles extend to infinity.
+ */
+@Value
+@Builder
+public class ShardTiling {
+
+    int columns;
+
+    int rows;
+
+    int tileWidth;
+
+    int tileHeight;
+
+    int originX;
+
+    int originY;
+
+    public int getShardCount() {
+        return columns * rows;
+    }
+
+    public int column(int xPoint) {
+        return clamp(Math.floorDiv((long)xPoint - originX, tileWidth), columns);
+    }
+
+    public int row(int yPoint) {
+        return clamp(Math.floorDiv((long)yPoint - originY, tileHeight), rows);
+    }
+
+    public int shard(int column, int row) {
+        return row * columns + column;
+    }
+
+    private static int clamp(long tile, int tiles) {
+        return (int)Math.max(0, Math.min(tiles - 1, tile));
+    }
+}
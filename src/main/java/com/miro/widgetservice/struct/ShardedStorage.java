@@ -0,0 +1,135 @@
+package com.miro.widgetservice.struct;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Partitions the plane into tiles, each with its own index. A widget belongs to the shard holding
+ * its lower left corner, so a widget straddling a tile border is stored once and is still found by every area
+ * containing it: such an area contains the corner and therefore intersects the owning shard.
+ * An area search visits only the intersecting shards. Takes no locks, see {@link SpatialIndex}.
+ */
+public class ShardedStorage implements SpatialIndex {
+
+    private static final int NO_SHARD = -1;
+
+    private final ShardTiling tiling;
+
+    private final SpatialIndex[] shards;
+
+    private final LongIntHashMap shardById = new LongIntHashMap(NO_SHARD);
+
+    private final LongAdder queries = new LongAdder();
+
+    public ShardedStorage(Supplier<SpatialIndex> shardFactory, ShardTiling tiling) {
+        this.tiling = tiling;
+        this.shards = new SpatialIndex[tiling.getShardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = shardFactory.get();
+        }
+    }
+
+    @Override
+    public void putOrReplace(long id, int minX, int minY, int maxX, int maxY) {
+        int shard = shardOf(minX, minY);
+        int previousShard = shardById.put(id, shard);
+        if (previousShard != NO_SHARD && previousShard != shard) {
+            shards[previousShard].deleteIfExist(id);
+        }
+        shards[shard].putOrReplace(id, minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public void deleteIfExist(long id) {
+        int shard = shardById.remove(id);
+        if (shard != NO_SHARD) {
+            shards[shard].deleteIfExist(id);
+        }
+    }
+
+    @Override
+    public void findInArea(int minX, int minY, int maxX, int maxY, LongConsumer consumer) {
+        int column1 = tiling.column(minX);
+        int column2 = tiling.column(maxX);
+        int row1 = tiling.row(minY);
+        int row2 = tiling.row(maxY);
+
+        queries.increment();
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                shards[tiling.shard(column, row)].findInArea(minX, minY, maxX, maxY, consumer);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        for (SpatialIndex shard : shards) {
+            shard.deleteAll();
+        }
+        shardById.clear();
+    }
+
+    @Override
+    public void loadAll(long[] ids, int[] bounds, int count) {
+        int[] counts = new int[shards.length];
+        int[] shardOfEntry = new int[count];
+        for (int i = 0, b = 0; i < count; i++, b += 4) {
+            shardOfEntry[i] = shardOf(bounds[b], bounds[b + 1]);
+            counts[shardOfEntry[i]]++;
+        }
+        long[][] shardIds = new long[shards.length][];
+        int[][] shardBounds = new int[shards.length][];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shardIds[shard] = new long[counts[shard]];
+            shardBounds[shard] = new int[counts[shard] * 4];
+            counts[shard] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int shard = shardOfEntry[i];
+            int position = counts[shard]++;
+            shardIds[shard][position] = ids[i];
+            System.arraycopy(bounds, i * 4, shardBounds[shard], position * 4, 4);
+        }
+
+        shardById.clear();
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard].loadAll(shardIds[shard], shardBounds[shard], counts[shard]);
+            for (long id : shardIds[shard]) {
+                shardById.put(id, shard);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return shardById.size();
+    }
+
+    @Override
+    public IndexStats getStats() {
+        int depth = 0;
+        long memory = shardById.estimatedMemoryBytes();
+        long examined = 0;
+        for (SpatialIndex shard : shards) {
+            IndexStats stats = shard.getStats();
+            depth = Math.max(depth, stats.getDepth());
+            memory += stats.getEstimatedMemoryBytes();
+            examined += stats.getExaminedEntries();
+        }
+        return IndexStats.builder()
+            .type(getClass().getSimpleName() + "[" + tiling.getColumns() + "x" + tiling.getRows() + " "
+                + shards[0].getClass().getSimpleName() + "]")
+            .size(shardById.size())
+            .depth(depth)
+            .estimatedMemoryBytes(memory)
+            .queries(queries.sum())
+            .examinedEntries(examined)
+            .build();
+    }
+
+    private int shardOf(int minX, int minY) {
+        return tiling.shard(tiling.column(minX), tiling.row(minY));
+    }
+}
@@ -0,0 +1,31 @@
+package com.miro.widgetservice.struct;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Index of widget rectangles by id. Rectangles are {@code [minX, maxX] x [minY, maxY]} in {@code int} coordinates.
+ * Implementations take no locks: concurrent searches are safe, a change must not run concurrently with anything
+ * else. {@link LeftRight} replicas of the {@code memory} repository guarantee that.
+ */
+public interface SpatialIndex {
+
+    void putOrReplace(long id, int minX, int minY, int maxX, int maxY);
+
+    void deleteIfExist(long id);
+
+    /**
+     * Reports ids of entries fully inside the area, in no particular order.
+     */
+    void findInArea(int minX, int minY, int maxX, int maxY, LongConsumer consumer);
+
+    void deleteAll();
+
+    /**
+     * Replaces the whole index content in one pass. Entry {@code i} spans {@code bounds[4 * i .. 4 * i + 3]}.
+     */
+    void loadAll(long[] ids, int[] bounds, int count);
+
+    int size();
+
+    IndexStats getStats();
+}
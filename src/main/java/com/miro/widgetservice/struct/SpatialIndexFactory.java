@@ -0,0 +1,34 @@
+package com.miro.widgetservice.struct;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class SpatialIndexFactory {
+
+    private final String type;
+
+    private final int gridCellSize;
+
+    private final int gridMaxCellsPerWidget;
+
+    private final int quadTreeNodeCapacity;
+
+    private final int quadTreeMaxDepth;
+
+    public SpatialIndex create() {
+        switch (type) {
+            case "rtree":
+                return new RTreeStorage();
+            case "int-rtree":
+                return new IntRTreeStorage();
+            case "grid":
+                return new GridStorage(gridCellSize, gridMaxCellsPerWidget);
+            case "quadtree":
+                return new QuadTreeStorage(quadTreeNodeCapacity, quadTreeMaxDepth);
+            default:
+                throw new IllegalArgumentException("Unknown spatial index type: " + type);
+        }
+    }
+}
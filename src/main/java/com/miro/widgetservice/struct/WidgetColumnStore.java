@@ -0,0 +1,173 @@
+package com.miro.widgetservice.struct;
+
+import com.miro.widgetservice.model.Widget;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays widget storage: one primitive column per field, addressed by slot.
+ * Slots of deleted widgets are reused, ids are resolved with an open-addressing map.
+ * Z indexes are not stored here, they follow from the position in {@link ZOrderTree}.
+ * Not thread safe.
+ */
+public class WidgetColumnStore {
+
+    public static final int NO_SLOT = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final LongIntHashMap slotById = new LongIntHashMap(NO_SLOT);
+
+    private long[] ids;
+
+    private int[] xPoints;
+
+    private int[] yPoints;
+
+    private int[] widths;
+
+    private int[] heights;
+
+    private long[] modificationDates;
+
+    private int[] freeSlots;
+
+    private int freeCount;
+
+    private int highWaterMark;
+
+    public WidgetColumnStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    public int slotOf(long id) {
+        return slotById.get(id);
+    }
+
+    public boolean contains(long id) {
+        return slotById.containsKey(id);
+    }
+
+    public int insert(Widget widget) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot();
+        ids[slot] = widget.getId();
+        slotById.put(widget.getId(), slot);
+        update(slot, widget);
+        return slot;
+    }
+
+    public void update(int slot, Widget widget) {
+        xPoints[slot] = widget.getXPoint();
+        yPoints[slot] = widget.getYPoint();
+        widths[slot] = widget.getWidth();
+        heights[slot] = widget.getHeight();
+        modificationDates[slot] = toEpochNanos(widget.getModificationDate());
+    }
+
+    public void remove(int slot) {
+        slotById.remove(ids[slot]);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public void clear() {
+        slotById.clear();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public Widget materialize(int slot, int zIndex) {
+        return Widget.builder()
+            .id(ids[slot])
+            .xPoint(xPoints[slot])
+            .yPoint(yPoints[slot])
+            .zIndex(zIndex)
+            .width(widths[slot])
+            .height(heights[slot])
+            .modificationDate(fromEpochNanos(modificationDates[slot]))
+            .build();
+    }
+
+    public long getId(int slot) {
+        return ids[slot];
+    }
+
+    public int getXPoint(int slot) {
+        return xPoints[slot];
+    }
+
+    public int getYPoint(int slot) {
+        return yPoints[slot];
+    }
+
+    public int getWidth(int slot) {
+        return widths[slot];
+    }
+
+    public int getHeight(int slot) {
+        return heights[slot];
+    }
+
+    public int getMaxXPoint(int slot) {
+        return saturatedAdd(xPoints[slot], widths[slot]);
+    }
+
+    public int getMaxYPoint(int slot) {
+        return saturatedAdd(yPoints[slot], heights[slot]);
+    }
+
+    public long estimatedMemoryBytes() {
+        long perSlot = 2L * Long.BYTES + 4L * Integer.BYTES;
+        return ids.length * perSlot + freeSlots.length * (long)Integer.BYTES + slotById.estimatedMemoryBytes();
+    }
+
+    private int nextSlot() {
+        if (highWaterMark == ids.length) {
+            grow(ids.length + (ids.length >> 1));
+        }
+        return highWaterMark++;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        xPoints = new int[capacity];
+        yPoints = new int[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+        modificationDates = new long[capacity];
+        freeSlots = new int[16];
+        freeCount = 0;
+        highWaterMark = 0;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        xPoints = Arrays.copyOf(xPoints, capacity);
+        yPoints = Arrays.copyOf(yPoints, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        modificationDates = Arrays.copyOf(modificationDates, capacity);
+    }
+
+    public static int saturatedAdd(int point, int length) {
+        long result = (long)point + length;
+        return result > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)result;
+    }
+
+    private static long toEpochNanos(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + dateTime.getNano();
+    }
+
+    private static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+            (int)Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
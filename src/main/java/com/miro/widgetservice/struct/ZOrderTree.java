@@ -0,0 +1,352 @@
+package com.miro.widgetservice.struct;
+
+import java.util.Arrays;
+
+/**
+ * Implicit treap keeping widget slots in z order. A node stores only the gap to the z index of its
+ * predecessor (the first node stores its z index), so the z index of a slot is the sum of gaps up to it.
+ * Inserting at an occupied z index changes at most two gaps instead of shifting every widget of the run:
+ * the new node takes the gap of the occupant, the occupant gets gap 1 and the first real gap after the run
+ * shrinks by one. Subtree size, gap sum and maximum gap make rank, lookup by z index and the search for the
+ * end of the run {@code O(log n)}. Nodes are addressed by slot, all fields are primitive arrays.
+ * Not thread safe.
+ */
+public class ZOrderTree {
+
+    public static final int NIL = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] left;
+
+    private int[] right;
+
+    private int[] parent;
+
+    private int[] size;
+
+    private long[] gap;
+
+    private long[] sum;
+
+    private long[] maxGap;
+
+    private int root = NIL;
+
+    private int splitLeft;
+
+    private int splitRight;
+
+    public ZOrderTree() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public void clear() {
+        root = NIL;
+    }
+
+    public int zIndexOf(int slot) {
+        long zIndex = sumOf(left[slot]) + gap[slot];
+        for (int node = slot, up = parent[slot]; up != NIL; node = up, up = parent[up]) {
+            if (right[up] == node) {
+                zIndex += sumOf(left[up]) + gap[up];
+            }
+        }
+        return (int)zIndex;
+    }
+
+    /**
+     * Difference between the z index of the slot and of its predecessor.
+     */
+    public long gapBefore(int slot) {
+        return gap[slot];
+    }
+
+    public int slotAt(int zIndex) {
+        int slot = ceiling(zIndex);
+        return slot != NIL && zIndexOf(slot) == zIndex ? slot : NIL;
+    }
+
+    /**
+     * First slot with z index not below the given one.
+     */
+    public int ceiling(int zIndex) {
+        int node = root;
+        long offset = 0;
+        int found = NIL;
+        while (node != NIL) {
+            long nodeZIndex = offset + sumOf(left[node]) + gap[node];
+            if (nodeZIndex >= zIndex) {
+                found = node;
+                node = left[node];
+            } else {
+                offset = nodeZIndex;
+                node = right[node];
+            }
+        }
+        return found;
+    }
+
+    public int first() {
+        int node = root;
+        while (node != NIL && left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    public int last() {
+        int node = root;
+        while (node != NIL && right[node] != NIL) {
+            node = right[node];
+        }
+        return node;
+    }
+
+    public int lastZIndex() {
+        return (int)sum[root];
+    }
+
+    public int next(int slot) {
+        if (right[slot] != NIL) {
+            int node = right[slot];
+            while (left[node] != NIL) {
+                node = left[node];
+            }
+            return node;
+        }
+        int node = slot;
+        int up = parent[node];
+        while (up != NIL && right[up] == node) {
+            node = up;
+            up = parent[up];
+        }
+        return up;
+    }
+
+    /**
+     * Z index of the last widget in the contiguous run starting at the occupied z index.
+     */
+    public int lastZIndexWithoutGap(int zIndex) {
+        int slot = slotAt(zIndex);
+        if (slot == NIL) {
+            throw new IllegalArgumentException("Z index is not occupied: " + zIndex);
+        }
+        int gapSlot = firstGapAfter(slot);
+        return gapSlot == NIL ? lastZIndex() : (int)(zIndexOf(gapSlot) - gap[gapSlot]);
+    }
+
+    /**
+     * Places the slot at the z index. An occupied z index and the contiguous run above it move up by one.
+     */
+    public void insert(int slot, int zIndex) {
+        ensureCapacity(slot + 1);
+
+        int successor = ceiling(zIndex);
+        long slotGap;
+        int rank;
+        if (successor == NIL) {
+            slotGap = isEmpty() ? zIndex : (long)zIndex - lastZIndex();
+            rank = size();
+        } else {
+            long successorZIndex = zIndexOf(successor);
+            rank = rank(successor);
+            if (successorZIndex == zIndex) {
+                slotGap = gap[successor];
+                int gapSlot = firstGapAfter(successor);
+                setGap(successor, 1);
+                if (gapSlot != NIL) {
+                    setGap(gapSlot, gap[gapSlot] - 1);
+                }
+            } else {
+                long predecessorZIndex = successorZIndex - gap[successor];
+                slotGap = zIndex - predecessorZIndex;
+                setGap(successor, successorZIndex - zIndex);
+            }
+        }
+
+        left[slot] = NIL;
+        right[slot] = NIL;
+        gap[slot] = slotGap;
+        pull(slot);
+
+        split(root, rank);
+        int rightPart = splitRight;
+        root = merge(merge(splitLeft, slot), rightPart);
+        parent[root] = NIL;
+    }
+
+    public void remove(int slot) {
+        int successor = next(slot);
+        if (successor != NIL) {
+            setGap(successor, gap[successor] + gap[slot]);
+        }
+
+        int rank = rank(slot);
+        split(root, rank);
+        int leftPart = splitLeft;
+        split(splitRight, 1);
+        root = merge(leftPart, splitRight);
+        if (root != NIL) {
+            parent[root] = NIL;
+        }
+    }
+
+    public long estimatedMemoryBytes() {
+        return left.length * (4L * Integer.BYTES + 3L * Long.BYTES);
+    }
+
+    private int rank(int slot) {
+        int rank = sizeOf(left[slot]);
+        for (int node = slot, up = parent[slot]; up != NIL; node = up, up = parent[up]) {
+            if (right[up] == node) {
+                rank += sizeOf(left[up]) + 1;
+            }
+        }
+        return rank;
+    }
+
+    private int firstGapAfter(int slot) {
+        int found = leftmostGap(right[slot]);
+        if (found != NIL) {
+            return found;
+        }
+        for (int node = slot, up = parent[slot]; up != NIL; node = up, up = parent[up]) {
+            if (left[up] == node) {
+                if (gap[up] > 1) {
+                    return up;
+                }
+                found = leftmostGap(right[up]);
+                if (found != NIL) {
+                    return found;
+                }
+            }
+        }
+        return NIL;
+    }
+
+    private int leftmostGap(int node) {
+        while (node != NIL && maxGap[node] > 1) {
+            if (maxGapOf(left[node]) > 1) {
+                node = left[node];
+            } else if (gap[node] > 1) {
+                return node;
+            } else {
+                node = right[node];
+            }
+        }
+        return NIL;
+    }
+
+    private void setGap(int slot, long value) {
+        gap[slot] = value;
+        for (int node = slot; node != NIL; node = parent[node]) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Splits the tree into the first {@code count} nodes ({@link #splitLeft}) and the rest ({@link #splitRight}).
+     */
+    private void split(int node, int count) {
+        if (node == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if (sizeOf(left[node]) >= count) {
+            split(left[node], count);
+            left[node] = splitRight;
+            pull(node);
+            splitRight = node;
+        } else {
+            split(right[node], count - sizeOf(left[node]) - 1);
+            right[node] = splitLeft;
+            pull(node);
+            splitLeft = node;
+        }
+        parent[node] = NIL;
+    }
+
+    private int merge(int first, int second) {
+        if (first == NIL) {
+            return second;
+        }
+        if (second == NIL) {
+            return first;
+        }
+        if (priority(first) > priority(second)) {
+            right[first] = merge(right[first], second);
+            pull(first);
+            return first;
+        }
+        left[second] = merge(first, left[second]);
+        pull(second);
+        return second;
+    }
+
+    private void pull(int node) {
+        int leftChild = left[node];
+        int rightChild = right[node];
+        size[node] = 1 + sizeOf(leftChild) + sizeOf(rightChild);
+        sum[node] = sumOf(leftChild) + gap[node] + sumOf(rightChild);
+        maxGap[node] = Math.max(gap[node], Math.max(maxGapOf(leftChild), maxGapOf(rightChild)));
+        if (leftChild != NIL) {
+            parent[leftChild] = node;
+        }
+        if (rightChild != NIL) {
+            parent[rightChild] = node;
+        }
+    }
+
+    private int sizeOf(int node) {
+        return node == NIL ? 0 : size[node];
+    }
+
+    private long sumOf(int node) {
+        return node == NIL ? 0 : sum[node];
+    }
+
+    private long maxGapOf(int node) {
+        return node == NIL ? Long.MIN_VALUE : maxGap[node];
+    }
+
+    private static int priority(int slot) {
+        int hash = slot * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= left.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, left.length + (left.length >> 1));
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        parent = Arrays.copyOf(parent, newCapacity);
+        size = Arrays.copyOf(size, newCapacity);
+        gap = Arrays.copyOf(gap, newCapacity);
+        sum = Arrays.copyOf(sum, newCapacity);
+        maxGap = Arrays.copyOf(maxGap, newCapacity);
+    }
+
+    private void allocate(int capacity) {
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        size = new int[capacity];
+        gap = new long[capacity];
+        sum = new long[capacity];
+        maxGap = new long[capacity];
+    }
+}
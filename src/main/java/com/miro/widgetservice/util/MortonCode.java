@@ -0,0 +1,100 @@
+package com.miro.widgetservice.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Z-order (Morton) curve over the {@code int} plane. Keys interleave the bits of the unsigned coordinates and
+ * are shifted by {@link Long#MIN_VALUE}, so signed {@code long} order is the curve order and a column of keys
+ * can be range scanned.
+ */
+public final class MortonCode {
+
+    private static final int BITS = 32;
+
+    private MortonCode() {
+    }
+
+    public static long key(int xPoint, int yPoint) {
+        return interleave(xPoint ^ Integer.MIN_VALUE, yPoint ^ Integer.MIN_VALUE) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Sorted, disjoint inclusive key ranges {@code [from0, to0, from1, to1, ...]} that cover every point of the
+     * rectangle. Quadrants are split level by level while the result stays within {@code maxRanges}, quadrants
+     * left partially covered are returned whole, so the ranges can match points outside the rectangle.
+     */
+    public static long[] ranges(int minX, int minY, int maxX, int maxY, int maxRanges) {
+        long fromX = Integer.toUnsignedLong(minX ^ Integer.MIN_VALUE);
+        long fromY = Integer.toUnsignedLong(minY ^ Integer.MIN_VALUE);
+        long toX = Integer.toUnsignedLong(maxX ^ Integer.MIN_VALUE);
+        long toY = Integer.toUnsignedLong(maxY ^ Integer.MIN_VALUE);
+
+        List<long[]> ranges = new ArrayList<>();
+        List<long[]> partial = List.of(new long[] {0, 0});
+        int level = BITS;
+        while (!partial.isEmpty() && ranges.size() + partial.size() * 4 <= maxRanges) {
+            long half = 1L << (level - 1);
+            List<long[]> next = new ArrayList<>();
+            for (long[] cell : partial) {
+                for (int quadrant = 0; quadrant < 4; quadrant++) {
+                    long cellX = cell[0] + ((quadrant & 1) == 0 ? 0 : half);
+                    long cellY = cell[1] + ((quadrant & 2) == 0 ? 0 : half);
+                    long cellMaxX = cellX + half - 1;
+                    long cellMaxY = cellY + half - 1;
+                    if (cellX > toX || cellMaxX < fromX || cellY > toY || cellMaxY < fromY) {
+                        continue;
+                    }
+                    if (cellX >= fromX && cellMaxX <= toX && cellY >= fromY && cellMaxY <= toY) {
+                        ranges.add(range(cellX, cellY, level - 1));
+                    } else {
+                        next.add(new long[] {cellX, cellY});
+                    }
+                }
+            }
+            partial = next;
+            level--;
+        }
+        for (long[] cell : partial) {
+            ranges.add(range(cell[0], cell[1], level));
+        }
+        return merge(ranges);
+    }
+
+    private static long[] range(long cellX, long cellY, int level) {
+        long from = interleave((int)cellX, (int)cellY);
+        long to = level == BITS ? -1L : from + (1L << (2 * level)) - 1;
+        return new long[] {from ^ Long.MIN_VALUE, to ^ Long.MIN_VALUE};
+    }
+
+    private static long[] merge(List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        long[] merged = new long[ranges.size() * 2];
+        int count = 0;
+        for (long[] range : ranges) {
+            if (count > 0 && merged[count - 1] != Long.MAX_VALUE && merged[count - 1] + 1 == range[0]) {
+                merged[count - 1] = range[1];
+            } else {
+                merged[count++] = range[0];
+                merged[count++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    private static long interleave(int xPoint, int yPoint) {
+        return spread(xPoint) | spread(yPoint) << 1;
+    }
+
+    private static long spread(int value) {
+        long bits = Integer.toUnsignedLong(value);
+        bits = (bits | bits << 16) & 0x0000FFFF0000FFFFL;
+        bits = (bits | bits << 8) & 0x00FF00FF00FF00FFL;
+        bits = (bits | bits << 4) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | bits << 2) & 0x3333333333333333L;
+        bits = (bits | bits << 1) & 0x5555555555555555L;
+        return bits;
+    }
+}
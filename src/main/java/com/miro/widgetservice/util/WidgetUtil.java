@@ -1,29 +1,75 @@
 package com.miro.widgetservice.util;
 
 import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.exception.WidgetServiceException;
-import java.util.Collection;
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import org.springframework.stereotype.Component;
 
 @Component
 public class WidgetUtil {
 
-    public Integer getLastZIndexWithoutGap(Collection<Integer> integers) {
-        Integer lastZIndex = null;
-        for (Integer currentIndex : integers) {
-            if (lastZIndex == null) {
-                lastZIndex = currentIndex;
-            } else if (currentIndex == lastZIndex + 1) {
-                lastZIndex = currentIndex;
-            } else {
-                break;
-            }
+    private static final String INVALID_CURSOR = "Invalid cursor argument";
+
+    /**
+     * Z index to continue from, inclusive. An empty cursor starts from the beginning.
+     */
+    public int getCursorZIndex(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException exception) {
+            throw new WidgetServiceException(INVALID_CURSOR);
+        }
+        if (bytes.length != Integer.BYTES) {
+            throw new WidgetServiceException(INVALID_CURSOR);
+        }
+        int lastZIndex = ByteBuffer.wrap(bytes).getInt();
+        if (lastZIndex == Integer.MAX_VALUE) {
+            throw new WidgetServiceException(INVALID_CURSOR);
+        }
+        return lastZIndex + 1;
+    }
+
+    /**
+     * Cursor after the last returned z index, or {@code null} when nothing follows. Pages are read one widget
+     * ahead, so a full last page gets no cursor either.
+     *
+     * @param hasNext whether a widget was found after the last returned one
+     */
+    public String getNextCursor(Integer lastZIndex, boolean hasNext) {
+        if (lastZIndex == null || !hasNext) {
+            return null;
         }
-        if (Integer.MAX_VALUE == Objects.requireNonNull(lastZIndex) && integers.contains(lastZIndex)) {
-            throw new WidgetServiceException("Z Index reach maximum");
+        byte[] bytes = ByteBuffer.allocate(Integer.BYTES).putInt(lastZIndex).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Passes widgets to the consumer in z order. {@code chunkFromZIndex} reads the next chunk from the given
+     * z index, inclusive, so only one chunk is held at a time and nothing is locked between chunks.
+     */
+    public void forEachInZOrder(IntFunction<List<WidgetRespDto>> chunkFromZIndex, Consumer<WidgetRespDto> consumer) {
+        int zIndex = Integer.MIN_VALUE;
+        while (true) {
+            List<WidgetRespDto> chunk = chunkFromZIndex.apply(zIndex);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunk.forEach(consumer);
+            int lastZIndex = chunk.get(chunk.size() - 1).getZIndex();
+            if (lastZIndex == Integer.MAX_VALUE) {
+                return;
+            }
+            zIndex = lastZIndex + 1;
         }
-        return lastZIndex;
     }
 
     public boolean isSearchDtoValid(SearchAreaDto searchAreaDto) {
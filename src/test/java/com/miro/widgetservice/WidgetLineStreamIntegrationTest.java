@@ -0,0 +1,93 @@
+package com.miro.widgetservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetReqDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.service.WidgetService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.SneakyThrows;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * NDJSON listing is written with non-blocking servlet IO, which needs a running server.
+ */
+@SpringBootTest(classes = WidgetServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WidgetLineStreamIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WidgetService widgetService;
+
+    @BeforeEach
+    void setUp() {
+        widgetService.deleteAll();
+    }
+
+    @Test
+    void streamLines_AllAndArea_SameAsUnpaged() {
+        widgetService.saveAll(IntStream.range(0, 2_500)
+            .mapToObj(i -> WidgetReqDto.builder()
+                .xPoint(i % 50 * 10)
+                .yPoint(i / 50 * 10)
+                .width(10)
+                .height(10)
+                .build())
+            .collect(Collectors.toList()));
+        SearchAreaDto area = SearchAreaDto.builder()
+            .xPoint1(100)
+            .yPoint1(0)
+            .xPoint2(300)
+            .yPoint2(400)
+            .build();
+
+        //when
+        ResponseEntity<String> response = getLines("/api/v1/widget");
+        ResponseEntity<String> areaResponse = getLines("/api/v1/widget?xPoint1=100&yPoint1=0&xPoint2=300&yPoint2=400");
+
+        //then
+        BDDAssertions.assertThat(response.getHeaders().getContentType())
+            .isEqualTo(MediaType.APPLICATION_NDJSON);
+        BDDAssertions.assertThat(toWidgets(response))
+            .hasSize(2_500)
+            .containsExactlyElementsOf(widgetService.findAll());
+        BDDAssertions.assertThat(toWidgets(areaResponse))
+            .isNotEmpty()
+            .containsExactlyElementsOf(widgetService.findAll(null, null, area));
+    }
+
+    private ResponseEntity<String> getLines(String url) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private List<WidgetRespDto> toWidgets(ResponseEntity<String> response) {
+        return Arrays.stream(response.getBody().split("\n"))
+            .map(this::toWidget)
+            .collect(Collectors.toList());
+    }
+
+    @SneakyThrows
+    private WidgetRespDto toWidget(String line) {
+        return objectMapper.readValue(line, WidgetRespDto.class);
+    }
+}
@@ -2,10 +2,13 @@ package com.miro.widgetservice;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widgetservice.dto.SearchAreaDto;
 import com.miro.widgetservice.dto.ValidationDto;
+import com.miro.widgetservice.dto.WidgetPageDto;
 import com.miro.widgetservice.dto.WidgetReqDto;
 import com.miro.widgetservice.dto.WidgetRespDto;
 import com.miro.widgetservice.service.WidgetService;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -21,20 +24,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import static com.miro.widgetservice.config.WireFormatConfig.APPLICATION_SMILE;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@AutoConfigureMetrics
 @SpringBootTest(classes = WidgetServiceApplication.class)
 class WidgetServiceIntegrationTest {
 
@@ -47,6 +54,9 @@ class WidgetServiceIntegrationTest {
     @Autowired
     private WidgetService widgetService;
 
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
     protected MockMvc client;
 
     @BeforeEach
@@ -550,6 +560,79 @@ class WidgetServiceIntegrationTest {
             .hasSize(10);
     }
 
+    @SneakyThrows
+    @Test
+    void findPage_FollowCursor_ReturnAllInZIndexOrder() {
+        List<WidgetReqDto> initWidgetList = initData();
+        widgetService.saveAll(initWidgetList);
+        widgetService.create(getWidget(1000, 1000, 10, 10));
+
+        //when
+        List<WidgetRespDto> allWidgets = new ArrayList<>();
+        String cursor = "";
+        do {
+            String response = client
+                .perform(get("/api/v1/widget/")
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                    .param("cursor", cursor)
+                    .param("size", "30")
+                    .param("xPoint1", "5")
+                    .param("yPoint1", "5")
+                    .param("xPoint2", "205")
+                    .param("yPoint2", "105"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+            WidgetPageDto page = objectMapper.readValue(response, WidgetPageDto.class);
+            allWidgets.addAll(page.getWidgets());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        //then
+        BDDAssertions.assertThat(allWidgets)
+            .hasSize(initWidgetList.size())
+            .extracting(WidgetRespDto::getZIndex)
+            .isSorted();
+    }
+
+    @Test
+    void findPage_FullLastPage_NoNextCursor() {
+        List<WidgetReqDto> initWidgetList = initData();
+        widgetService.saveAll(initWidgetList);
+
+        //when
+        WidgetPageDto firstPage = widgetService.findPage(null, initWidgetList.size() - 1, SearchAreaDto.builder().build());
+        WidgetPageDto lastPage = widgetService.findPage(null, initWidgetList.size(), SearchAreaDto.builder().build());
+
+        //then
+        BDDAssertions.assertThat(firstPage.getNextCursor())
+            .isNotNull();
+        BDDAssertions.assertThat(lastPage.getWidgets())
+            .hasSize(initWidgetList.size());
+        BDDAssertions.assertThat(lastPage.getNextCursor())
+            .isNull();
+    }
+
+    @SneakyThrows
+    @Test
+    void findPage_InvalidCursor_ThrowException() {
+        //when
+        String response = client
+            .perform(get("/api/v1/widget/")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .param("cursor", "not a cursor"))
+            .andExpect(status().isBadRequest())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        //then
+        BDDAssertions.assertThat(response)
+            .isEqualTo("Invalid cursor argument");
+    }
+
     @SneakyThrows
     @Test
     void findAll_WithCoordinates_Success() {
@@ -637,6 +720,103 @@ class WidgetServiceIntegrationTest {
             .hasSize(initWidgetList.size() + 1);
     }
 
+    @SneakyThrows
+    @Test
+    void findAll_Stream_SameAsUnpaged() {
+        widgetService.saveAll(IntStream.range(0, 2_500)
+            .mapToObj(i -> getWidget(i % 50 * 10, i / 50 * 10, 10, 10))
+            .collect(Collectors.toList()));
+        SearchAreaDto area = SearchAreaDto.builder()
+            .xPoint1(100)
+            .yPoint1(0)
+            .xPoint2(300)
+            .yPoint2(400)
+            .build();
+
+        //when
+        String response = client
+            .perform(get("/api/v1/widget/")
+                .param("stream", "true"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        String areaResponse = client
+            .perform(get("/api/v1/widget/")
+                .param("stream", "true")
+                .param("xPoint1", "100")
+                .param("yPoint1", "0")
+                .param("xPoint2", "300")
+                .param("yPoint2", "400"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<WidgetRespDto> allWidgets = objectMapper.readValue(response, new TypeReference<>() {
+        });
+        List<WidgetRespDto> areaWidgets = objectMapper.readValue(areaResponse, new TypeReference<>() {
+        });
+
+        //then
+        BDDAssertions.assertThat(allWidgets)
+            .hasSize(2_500)
+            .containsExactlyElementsOf(widgetService.findAll());
+        BDDAssertions.assertThat(areaWidgets)
+            .isNotEmpty()
+            .containsExactlyElementsOf(widgetService.findAll(null, null, area));
+    }
+
+    @SneakyThrows
+    @Test
+    void createBatchAndFindAll_Smile_SameAsJson() {
+        ObjectMapper smileMapper = smileHttpMessageConverter.getObjectMapper();
+        byte[] request = smileMapper.writeValueAsBytes(initData());
+
+        //when
+        byte[] created = client
+            .perform(post("/api/v1/widget/batch")
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_SMILE)
+                .header(HttpHeaders.ACCEPT, APPLICATION_SMILE)
+                .content(request))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        byte[] listing = client
+            .perform(get("/api/v1/widget/")
+                .header(HttpHeaders.ACCEPT, APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        byte[] streamed = client
+            .perform(get("/api/v1/widget/")
+                .param("stream", "true")
+                .header(HttpHeaders.ACCEPT, APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        String json = client
+            .perform(get("/api/v1/widget/"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        //then
+        List<WidgetRespDto> jsonWidgets = objectMapper.readValue(json, new TypeReference<>() {
+        });
+        BDDAssertions.assertThat(smileMapper.readValue(created, new TypeReference<List<WidgetRespDto>>() {
+        })).hasSize(initData().size());
+        BDDAssertions.assertThat(smileMapper.readValue(listing, new TypeReference<List<WidgetRespDto>>() {
+        })).isNotEmpty().isEqualTo(jsonWidgets);
+        BDDAssertions.assertThat(smileMapper.readValue(streamed, new TypeReference<List<WidgetRespDto>>() {
+        })).isEqualTo(jsonWidgets);
+        BDDAssertions.assertThat(listing.length).isLessThan(json.length());
+    }
+
     @SneakyThrows
     @Test
     void create_InvalidDto_ThrowException() {
@@ -669,6 +849,107 @@ class WidgetServiceIntegrationTest {
             .hasSize(2);
     }
 
+    @SneakyThrows
+    @Test
+    void createBatch_ConflictingZIndexes_SameAsOneByOne() {
+        List<WidgetReqDto> initWidgetList = initData();
+        widgetService.saveAll(initWidgetList);
+
+        //given
+        List<WidgetReqDto> batch = List.of(getWidget(1), getWidget(1), getWidget(150), getWidget(2), getWidget(-150),
+            getWidget(99));
+        batch.get(2).setZIndex(null);
+
+        //when
+        String response = client
+            .perform(post("/api/v1/widget/batch")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<WidgetRespDto> createdWidgets = objectMapper.readValue(response, new TypeReference<>() {
+        });
+
+        //then
+        List<WidgetRespDto> allWidgets = widgetService.findAll();
+        List<Integer> createdZIndexes = createdWidgets.stream()
+            .map(WidgetRespDto::getZIndex)
+            .collect(Collectors.toList());
+
+        widgetService.deleteAll();
+        widgetService.saveAll(initWidgetList);
+        List<Integer> expectedZIndexes = batch.stream()
+            .map(widget -> widgetService.create(widget).getId())
+            .collect(Collectors.toList()).stream()
+            .map(id -> widgetService.findById(id).getZIndex())
+            .collect(Collectors.toList());
+
+        BDDAssertions.assertThat(createdZIndexes)
+            .containsExactlyElementsOf(expectedZIndexes);
+        BDDAssertions.assertThat(allWidgets)
+            .extracting(WidgetRespDto::getZIndex)
+            .containsExactlyElementsOf(widgetService.findAll().stream()
+                .map(WidgetRespDto::getZIndex)
+                .collect(Collectors.toList()));
+        BDDAssertions.assertThat(allWidgets)
+            .usingElementComparatorIgnoringFields("modificationDate")
+            .containsAll(createdWidgets);
+    }
+
+    @SneakyThrows
+    @Test
+    void createBatch_InvalidDto_ThrowException() {
+        //given
+        List<WidgetReqDto> batch = List.of(getWidget(1), getWidget(0, 0, 0, 0));
+
+        //when
+        String response = client
+            .perform(post("/api/v1/widget/batch")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+            .andExpect(status().isBadRequest())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        //then
+        BDDAssertions.assertThat(response)
+            .contains("Invalid request");
+        BDDAssertions.assertThat(widgetService.findAll())
+            .isEmpty();
+    }
+
+    @SneakyThrows
+    @Test
+    void metrics_WidgetOperations_ScrapedInPrometheusFormat() {
+        widgetService.saveAll(initData());
+        widgetService.create(getWidget(0));
+        widgetService.findAll(null, null, SearchAreaDto.builder()
+            .xPoint1(0)
+            .yPoint1(0)
+            .xPoint2(300)
+            .yPoint2(300)
+            .build());
+
+        //when
+        String response = client
+            .perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        //then
+        BDDAssertions.assertThat(response)
+            .contains("widget_service_seconds_bucket{exception=\"none\",")
+            .contains("widget_service_seconds{exception=\"none\",")
+            .contains("widget_shift_length_widgets_count{")
+            .contains("widget_area_results_widgets_sum{");
+    }
+
     private List<WidgetReqDto> initData() {
         return IntStream.range(-100, 100)
             .mapToObj(this::getWidget)
@@ -0,0 +1,158 @@
+package com.miro.widgetservice.cache;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.dto.WidgetRespDto;
+import com.miro.widgetservice.model.WidgetEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+
+class WidgetCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WidgetCache widgetCache = new WidgetCache(100, 1_000, meterRegistry);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void findAll_WidgetChangedOutsideArea_KeepEntry() {
+        WidgetQueryKey queryKey = WidgetQueryKey.builder()
+            .area(getArea(0, 100))
+            .build();
+        widgetCache.findAll(queryKey, null, this::load);
+
+        //when
+        widgetCache.evict(getWidgetEntity(2L, 200, 5));
+        widgetCache.findAll(queryKey, null, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(1);
+
+        //when
+        widgetCache.evict(getWidgetEntity(3L, 10, 7));
+        widgetCache.findAll(queryKey, null, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void findAll_ShiftAboveFullPage_KeepEntry() {
+        WidgetQueryKey queryKey = WidgetQueryKey.builder()
+            .fromZIndex(0)
+            .size(1)
+            .build();
+        widgetCache.findAll(queryKey, 1, this::load);
+
+        //when
+        widgetCache.evictShift(6, 10, 1);
+        widgetCache.findAll(queryKey, 1, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(1);
+
+        //when
+        widgetCache.evictShift(5, 10, 1);
+        widgetCache.findAll(queryKey, 1, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void findAll_ManyEntries_EvictOnlyMatching() {
+        List<WidgetQueryKey> queryKeys = IntStream.range(0, 50)
+            .mapToObj(i -> WidgetQueryKey.builder().area(getArea(i * 200, i * 200 + 100)).build())
+            .collect(Collectors.toList());
+        queryKeys.forEach(queryKey -> widgetCache.findAll(queryKey, null, this::load));
+        widgetCache.findById(1L, this::load);
+        widgetCache.findById(2L, this::load);
+
+        //when
+        widgetCache.evict(getWidgetEntity(2L, 200, 5));
+        queryKeys.forEach(queryKey -> widgetCache.findAll(queryKey, null, this::load));
+        widgetCache.findById(1L, this::load);
+        widgetCache.findById(2L, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(50 + 2 + 1 + 1);
+    }
+
+    @Test
+    void findById_ShiftBelowWidget_KeepEntry() {
+        widgetCache.findById(1L, this::load);
+
+        //when
+        widgetCache.evictShift(0, 4, 1);
+        widgetCache.findById(1L, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void findById_ShiftedWidget_EvictAndCountHitsAndMisses() {
+        widgetCache.findById(1L, this::load);
+        widgetCache.findById(1L, this::load);
+
+        //when
+        widgetCache.evictShift(0, 5, 1);
+        widgetCache.findById(1L, this::load);
+
+        //then
+        BDDAssertions.assertThat(loads.get()).isEqualTo(2);
+        BDDAssertions.assertThat(meterRegistry.get("cache.gets").tag("cache", "widgetsById").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+        BDDAssertions.assertThat(meterRegistry.get("cache.gets").tag("cache", "widgetsById").tag("result", "miss")
+            .functionCounter().count()).isEqualTo(2);
+    }
+
+    private List<WidgetRespDto> load() {
+        loads.incrementAndGet();
+        return List.of(getWidget(1L, 5));
+    }
+
+    private Optional<WidgetRespDto> load(Long id) {
+        loads.incrementAndGet();
+        return Optional.of(getWidget(id, 5));
+    }
+
+    private WidgetRespDto getWidget(Long id, int zIndex) {
+        return WidgetRespDto.builder()
+            .id(id)
+            .xPoint(10)
+            .yPoint(10)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .build();
+    }
+
+    private WidgetEntity getWidgetEntity(Long id, int point, int zIndex) {
+        return WidgetEntity.builder()
+            .id(id)
+            .xPoint(point)
+            .yPoint(point)
+            .xPoint2(point + 10)
+            .yPoint2(point + 10)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .build();
+    }
+
+    private SearchAreaDto getArea(int from, int to) {
+        return SearchAreaDto.builder()
+            .xPoint1(from)
+            .yPoint1(from)
+            .xPoint2(to)
+            .yPoint2(to)
+            .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.miro.widgetservice.cache;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.model.WidgetEntity;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.assertj.core.api.Assertions.tuple;
+
+class WidgetIndexMirrorTest {
+
+    private final WidgetInMemoryRepository widgetIndex = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil());
+
+    private final WidgetIndexMirror widgetIndexMirror = new WidgetIndexMirror(null, widgetIndex);
+
+    @Test
+    void forEachChunk_IdsMissingInDatabase_WalkWholeArea() {
+        //given
+        widgetIndex.putAll(List.of(getWidget(10L, 0, 1), getWidget(20L, 0, 2), getWidget(30L, 500, 3),
+            getWidget(40L, 0, 4), getWidget(50L, 0, 5)));
+        List<Long> stored = List.of(50L);
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> found = new ArrayList<>();
+
+        //when
+        widgetIndexMirror.forEachChunk(getArea(), 2, ids -> {
+            chunks.add(ids);
+            ids.stream().filter(stored::contains).forEach(found::add);
+        });
+
+        //then
+        BDDAssertions.assertThat(chunks)
+            .containsExactly(List.of(10L, 20L), List.of(40L, 50L));
+        BDDAssertions.assertThat(found)
+            .containsExactly(50L);
+    }
+
+    @Test
+    void savedAndShifted_InTransaction_AppliedInOrderAfterCommit() throws Exception {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            widgetIndexMirror.saved(List.of(getWidgetEntity(10L, 1)));
+            widgetIndexMirror.shifted(1, 1, 1);
+            widgetIndexMirror.saved(List.of(getWidgetEntity(20L, 1)));
+
+            //then
+            BDDAssertions.assertThat(widgetIndex.findAll())
+                .isEmpty();
+
+            //when
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        //then
+        BDDAssertions.assertThat(widgetIndex.findAll())
+            .extracting(Widget::getId, Widget::getZIndex)
+            .containsExactly(tuple(20L, 1), tuple(10L, 2));
+        CompletableFuture.runAsync(() -> widgetIndexMirror.deleted(getWidgetEntity(20L, 1)))
+            .get(1, TimeUnit.SECONDS);
+        BDDAssertions.assertThat(widgetIndex.findAll())
+            .extracting(Widget::getId)
+            .containsExactly(10L);
+    }
+
+    private WidgetEntity getWidgetEntity(Long id, int zIndex) {
+        return WidgetEntity.builder()
+            .id(id)
+            .xPoint(0)
+            .yPoint(0)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+
+    private Widget getWidget(Long id, int xPoint, int zIndex) {
+        return Widget.builder()
+            .id(id)
+            .xPoint(xPoint)
+            .yPoint(0)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+
+    private SearchAreaDto getArea() {
+        return SearchAreaDto.builder()
+            .xPoint1(0)
+            .yPoint1(0)
+            .xPoint2(100)
+            .yPoint2(100)
+            .build();
+    }
+}
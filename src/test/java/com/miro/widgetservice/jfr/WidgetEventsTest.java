@@ -0,0 +1,129 @@
+package com.miro.widgetservice.jfr;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.repository.memory.WidgetInMemoryRepository;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.tuple;
+
+class WidgetEventsTest {
+
+    @TempDir
+    Path directory;
+
+    private Recording recording;
+
+    @BeforeEach
+    void setUp() {
+        recording = new Recording();
+        recording.enable(LockWaitEvent.class).withThreshold(Duration.ZERO);
+        recording.enable(ZIndexShiftEvent.class).withThreshold(Duration.ZERO);
+        recording.enable(AreaSearchEvent.class).withThreshold(Duration.ZERO);
+        recording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.close();
+    }
+
+    @Test
+    void saveAndFindAll_ShiftAndAreaSearch_Recorded() throws IOException {
+        WidgetInMemoryRepository repository = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil());
+        repository.saveAll(IntStream.range(0, 3)
+            .mapToObj(i -> getWidget(i * 30, i))
+            .collect(Collectors.toList()));
+
+        //when
+        repository.save(getWidget(100, 0));
+        repository.findAll(SearchAreaDto.builder()
+            .xPoint1(0)
+            .yPoint1(0)
+            .xPoint2(50)
+            .yPoint2(50)
+            .build());
+
+        //then
+        List<RecordedEvent> events = events();
+        BDDAssertions.assertThat(events)
+            .filteredOn(event -> event.getEventType().getName().equals("com.miro.widgetservice.ZIndexShift"))
+            .extracting(event -> event.getString("implementation"), event -> event.getInt("fromZIndex"),
+                event -> event.getInt("toZIndex"), event -> event.getInt("widgets"))
+            .containsExactly(tuple("memory", 0, 2, 3));
+        BDDAssertions.assertThat(events)
+            .filteredOn(event -> event.getEventType().getName().equals("com.miro.widgetservice.AreaSearch"))
+            .allMatch(event -> event.getLong("candidates") >= event.getLong("results"))
+            .extracting(event -> event.getString("source"), event -> event.getInt("maxX"),
+                event -> event.getLong("results"))
+            .containsExactlyInAnyOrder(tuple("IntRTreeStorage", 50, 2L), tuple("memory", 50, 2L));
+    }
+
+    @Test
+    void lock_HeldByOtherThread_WaitRecorded() throws Exception {
+        Lock lock = new RecordedLock(new ReentrantLock(), "Test", "write");
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                Thread.sleep(50);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        //when
+        lock.lock();
+        lock.unlock();
+        holder.join();
+
+        //then
+        BDDAssertions.assertThat(events())
+            .filteredOn(event -> event.getEventType().getName().equals("com.miro.widgetservice.LockWait"))
+            .filteredOn(event -> event.getString("lock").equals("Test"))
+            .hasSize(2)
+            .anyMatch(event -> event.getDuration().toMillis() >= 10);
+    }
+
+    private List<RecordedEvent> events() throws IOException {
+        recording.stop();
+        Path file = directory.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private Widget getWidget(int xPoint, Integer zIndex) {
+        return Widget.builder()
+            .xPoint(xPoint)
+            .yPoint(0)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.miro.widgetservice.repository.jpa;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.WidgetEntity;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest(properties = "spring.liquibase.change-log=classpath:change-log/changelog-master.xml")
+@ActiveProfiles("database")
+class WidgetJpaRepositoryTest {
+
+    @Autowired
+    private WidgetJpaRepository widgetRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findZIndexesBeforeGap_ContiguousRun_EndOfRun() {
+        //given
+        saveWithZIndexes(1, 2, 3, 5, 6);
+
+        //when
+        Integer fromOccupied = findLastZIndexWithoutGap(1);
+        Integer fromRunEnd = findLastZIndexWithoutGap(3);
+        Integer fromGap = findLastZIndexWithoutGap(4);
+
+        //then
+        BDDAssertions.assertThat(fromOccupied).isEqualTo(3);
+        BDDAssertions.assertThat(fromRunEnd).isEqualTo(3);
+        BDDAssertions.assertThat(fromGap).isEqualTo(6);
+    }
+
+    @Test
+    void findZIndexesBeforeGap_RunUpToMaximum_Maximum() {
+        //given
+        saveWithZIndexes(Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+
+        //when
+        Integer lastZIndex = findLastZIndexWithoutGap(Integer.MAX_VALUE - 2);
+
+        //then
+        BDDAssertions.assertThat(lastZIndex).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void findZIndexesFromIndexToIndex_Range_OnlyRange() {
+        //given
+        saveWithZIndexes(1, 2, 3, 5, 6, 9);
+
+        //when
+        List<Integer> zIndexes = widgetRepository.findZIndexesFromIndexToIndex(2, 6);
+        Integer fromGap = widgetRepository.findMinZIndexFrom(7);
+        Integer fromTop = widgetRepository.findMinZIndexFrom(10);
+
+        //then
+        BDDAssertions.assertThat(zIndexes).containsExactly(2, 3, 5, 6);
+        BDDAssertions.assertThat(fromGap).isEqualTo(9);
+        BDDAssertions.assertThat(fromTop).isNull();
+    }
+
+    @Test
+    void incrementFromIndexToIndex_ContiguousRun_ShiftOnlyRun() {
+        //given
+        saveWithZIndexes(1, 2, 3, 5, 6);
+
+        //when
+        Integer shifted = widgetRepository.incrementFromIndexToIndex(1, findLastZIndexWithoutGap(1));
+        entityManager.clear();
+
+        //then
+        BDDAssertions.assertThat(shifted).isEqualTo(3);
+        BDDAssertions.assertThat(widgetRepository.findAll(Sort.by("zIndex")))
+            .extracting(WidgetEntity::getZIndex)
+            .containsExactly(2, 3, 4, 5, 6);
+    }
+
+    @Test
+    void findAllInArea_RandomWidgets_SameAsContainmentFilter() {
+        //given
+        Random random = new Random(42);
+        List<WidgetEntity> widgetEntities = IntStream.range(0, 2_000)
+            .mapToObj(zIndex -> WidgetEntity.builder()
+                .xPoint(random.nextInt(2_000) - 1_000)
+                .yPoint(random.nextInt(2_000) - 1_000)
+                .width(1 + random.nextInt(100))
+                .height(1 + random.nextInt(100))
+                .zIndex(zIndex)
+                .build())
+            .collect(Collectors.toList());
+        widgetRepository.saveAll(widgetEntities);
+        widgetRepository.flush();
+        SearchAreaDto area = SearchAreaDto.builder()
+            .xPoint1(-300)
+            .yPoint1(-150)
+            .xPoint2(450)
+            .yPoint2(200)
+            .build();
+
+        //when
+        List<WidgetEntity> all = widgetRepository.findAllInArea(area, null, Pageable.unpaged());
+        List<WidgetEntity> page = widgetRepository.findAllInArea(area, 500, PageRequest.of(1, 10));
+
+        //then
+        List<WidgetEntity> expected = widgetEntities.stream()
+            .filter(widget -> widget.getXPoint() >= area.getXPoint1() && widget.getXPoint2() <= area.getXPoint2()
+                && widget.getYPoint() >= area.getYPoint1() && widget.getYPoint2() <= area.getYPoint2())
+            .collect(Collectors.toList());
+        BDDAssertions.assertThat(all).isNotEmpty().containsExactlyElementsOf(expected);
+        BDDAssertions.assertThat(page).containsExactlyElementsOf(expected.stream()
+            .filter(widget -> widget.getZIndex() >= 500)
+            .skip(10)
+            .limit(10)
+            .collect(Collectors.toList()));
+    }
+
+    private Integer findLastZIndexWithoutGap(int zIndex) {
+        return widgetRepository.findZIndexesBeforeGap(zIndex, PageRequest.of(0, 1)).get(0);
+    }
+
+    private void saveWithZIndexes(Integer... zIndexes) {
+        List<WidgetEntity> widgetEntities = Stream.of(zIndexes)
+            .map(zIndex -> WidgetEntity.builder()
+                .xPoint(0)
+                .yPoint(0)
+                .width(10)
+                .height(10)
+                .zIndex(zIndex)
+                .build())
+            .collect(Collectors.toList());
+        widgetRepository.saveAll(widgetEntities);
+        widgetRepository.flush();
+    }
+}
@@ -0,0 +1,105 @@
+package com.miro.widgetservice.repository.memory;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.tuple;
+
+class WidgetInMemoryRepositoryTest {
+
+    private final WidgetInMemoryRepository widgetRepository = new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil());
+
+    @ParameterizedTest
+    @ValueSource(ints = {20, 500, 5_000})
+    void findAll_PageOfArea_SameAsSortedSubList(int areaSize) {
+        Random random = new Random(areaSize);
+
+        //given
+        widgetRepository.saveAll(IntStream.range(0, 10_000)
+            .mapToObj(i -> getWidget(random))
+            .collect(Collectors.toList()));
+
+        for (int i = 0; i < 30; i++) {
+            int xPoint = random.nextInt(10_000) - areaSize / 2;
+            int yPoint = random.nextInt(10_000) - areaSize / 2;
+            SearchAreaDto area = SearchAreaDto.builder()
+                .xPoint1(xPoint)
+                .yPoint1(yPoint)
+                .xPoint2(xPoint + areaSize)
+                .yPoint2(yPoint + areaSize)
+                .build();
+            int page = random.nextInt(4);
+            int size = random.nextInt(50) + 1;
+
+            //when
+            List<Widget> found = widgetRepository.findAll(page, size, area);
+
+            //then
+            List<Widget> expected = widgetRepository.findAll(area).stream()
+                .skip((long)page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+
+            BDDAssertions.assertThat(found)
+                .usingElementComparatorOnFields("id", "zIndex")
+                .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void putAllAndShift_MirroredChanges_SameIdsAndZIndexes() {
+        //given
+        widgetRepository.putAll(List.of(getWidget(10L, 0, 1), getWidget(20L, 0, 2), getWidget(30L, 0, 5)));
+
+        //when
+        widgetRepository.shift(1, 2, 2);
+        widgetRepository.putAll(List.of(getWidget(40L, 0, 1), getWidget(20L, 100, 7)));
+
+        //then
+        BDDAssertions.assertThat(widgetRepository.findAll())
+            .extracting(Widget::getId, Widget::getZIndex)
+            .containsExactly(tuple(40L, 1), tuple(10L, 3), tuple(30L, 5), tuple(20L, 7));
+        BDDAssertions.assertThat(widgetRepository.findAll(SearchAreaDto.builder()
+                .xPoint1(100)
+                .yPoint1(0)
+                .xPoint2(200)
+                .yPoint2(100)
+                .build()))
+            .extracting(Widget::getId)
+            .containsExactly(20L);
+    }
+
+    private Widget getWidget(Long id, int xPoint, int zIndex) {
+        return Widget.builder()
+            .id(id)
+            .xPoint(xPoint)
+            .yPoint(0)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+
+    private Widget getWidget(Random random) {
+        return Widget.builder()
+            .xPoint(random.nextInt(10_000))
+            .yPoint(random.nextInt(10_000))
+            .width(random.nextInt(40) + 1)
+            .height(random.nextInt(40) + 1)
+            .zIndex(random.nextInt(50_000))
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.miro.widgetservice.repository.memory;
+
+import com.miro.widgetservice.exception.WidgetServiceException;
+import com.miro.widgetservice.model.Widget;
+import com.miro.widgetservice.struct.IntRTreeStorage;
+import com.miro.widgetservice.util.WidgetUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.tuple;
+
+class WidgetJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_LoggedWrites_SameState() {
+        //given
+        WidgetJournal journal = journal(WidgetJournal.Fsync.ALWAYS);
+        WidgetInMemoryRepository repository = repository(journal);
+        Widget first = repository.save(getWidget(null, 0, 1));
+        repository.saveAll(List.of(getWidget(null, 10, 1), getWidget(null, 20, 5)));
+        repository.save(getWidget(first.getId(), 30, null));
+        repository.deleteById(2L);
+        journal.close();
+
+        //when
+        WidgetInMemoryRepository recovered = repository(journal(WidgetJournal.Fsync.ALWAYS));
+
+        //then
+        BDDAssertions.assertThat(recovered.findAll())
+            .usingElementComparatorOnFields("id", "xPoint", "zIndex", "modificationDate")
+            .containsExactlyElementsOf(repository.findAll());
+        BDDAssertions.assertThat(recovered.save(getWidget(null, 40, null)).getId())
+            .isEqualTo(4L);
+    }
+
+    @Test
+    void recover_BatchFailedPartWay_SameState() {
+        //given
+        WidgetJournal journal = journal(WidgetJournal.Fsync.ALWAYS);
+        WidgetInMemoryRepository repository = repository(journal);
+        Throwable thrown = BDDAssertions.catchThrowable(() -> repository.saveAll(List.of(
+            getWidget(null, 0, 1), getWidget(null, 10, Integer.MAX_VALUE), getWidget(null, 20, null))));
+        repository.save(getWidget(1L, 30, 2));
+        repository.deleteById(2L);
+        journal.close();
+
+        //when
+        WidgetInMemoryRepository recovered = repository(journal(WidgetJournal.Fsync.ALWAYS));
+
+        //then
+        BDDAssertions.assertThat(thrown)
+            .isInstanceOf(WidgetServiceException.class);
+        BDDAssertions.assertThat(recovered.findAll())
+            .extracting(Widget::getId, Widget::getXPoint, Widget::getZIndex)
+            .containsExactly(tuple(1L, 30, 2));
+        BDDAssertions.assertThat(recovered.findAll())
+            .usingElementComparatorOnFields("id", "xPoint", "zIndex", "modificationDate")
+            .containsExactlyElementsOf(repository.findAll());
+    }
+
+    @Test
+    void recover_SnapshotAndTornTail_StateBeforeTornRecord() throws IOException {
+        //given
+        WidgetJournal journal = journal(WidgetJournal.Fsync.NEVER);
+        WidgetInMemoryRepository repository = repository(journal);
+        repository.saveAll(List.of(getWidget(null, 0, 1), getWidget(null, 10, 2)));
+        repository.snapshot();
+        repository.save(getWidget(null, 20, 1));
+        journal.close();
+        Path lastSegment = segments().get(segments().size() - 1);
+        long segmentSize = Files.size(lastSegment);
+        Files.write(lastSegment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        //when
+        WidgetInMemoryRepository recovered = repository(journal(WidgetJournal.Fsync.NEVER));
+
+        //then
+        BDDAssertions.assertThat(recovered.findAll())
+            .extracting(Widget::getId, Widget::getXPoint, Widget::getZIndex)
+            .containsExactly(tuple(3L, 20, 1), tuple(1L, 0, 2), tuple(2L, 10, 3));
+        BDDAssertions.assertThat(segments())
+            .hasSize(2);
+        BDDAssertions.assertThat(Files.size(lastSegment))
+            .isEqualTo(segmentSize);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith("wal-"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private WidgetJournal journal(WidgetJournal.Fsync fsync) {
+        return WidgetJournal.builder()
+            .directory(directory)
+            .fsync(fsync)
+            .fsyncIntervalMillis(100)
+            .snapshotRecords(1_000)
+            .build();
+    }
+
+    private WidgetInMemoryRepository repository(WidgetJournal journal) {
+        return new WidgetInMemoryRepository(IntRTreeStorage::new, new WidgetUtil(), Optional.of(journal),
+            new SimpleMeterRegistry());
+    }
+
+    private Widget getWidget(Long id, int xPoint, Integer zIndex) {
+        return Widget.builder()
+            .id(id)
+            .xPoint(xPoint)
+            .yPoint(0)
+            .width(10)
+            .height(10)
+            .zIndex(zIndex)
+            .modificationDate(LocalDateTime.now())
+            .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.miro.widgetservice.struct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+
+class IntRTreeTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void putAndRemove_RandomOperations_SameAsScan() {
+        IntRTree tree = new IntRTree(4);
+        Map<Long, int[]> expected = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            //given
+            long id = random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                //when
+                boolean removed = tree.remove(id);
+
+                //then
+                BDDAssertions.assertThat(removed).isEqualTo(expected.remove(id) != null);
+            } else {
+                int[] bounds = randomBounds();
+                expected.put(id, bounds);
+
+                //when
+                tree.put(id, bounds[0], bounds[1], bounds[2], bounds[3]);
+            }
+
+            //then
+            if (step % 100 == 0) {
+                assertSameAsScan(tree, expected);
+            }
+        }
+        assertSameAsScan(tree, expected);
+    }
+
+    @Test
+    void put_ManyEntries_SplitIntoLevels() {
+        IntRTree tree = new IntRTree(4);
+
+        //when
+        for (long id = 0; id < 1_000; id++) {
+            int[] bounds = randomBounds();
+            tree.put(id, bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+
+        //then
+        BDDAssertions.assertThat(tree.size()).isEqualTo(1_000);
+        BDDAssertions.assertThat(tree.height()).isBetween(5, 10);
+        BDDAssertions.assertThat(tree.nodeCount()).isGreaterThanOrEqualTo(1_000 / 4);
+    }
+
+    @Test
+    void remove_AllEntries_CondenseToEmptyRoot() {
+        IntRTree tree = new IntRTree(4);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; id < 1_000; id++) {
+            int[] bounds = randomBounds();
+            tree.put(id, bounds[0], bounds[1], bounds[2], bounds[3]);
+            ids.add(id);
+        }
+
+        //when
+        for (int i = 0; i < ids.size(); i += 2) {
+            tree.remove(ids.get(i));
+        }
+        int halfHeight = tree.height();
+        for (int i = 1; i < ids.size(); i += 2) {
+            tree.remove(ids.get(i));
+        }
+
+        //then
+        BDDAssertions.assertThat(halfHeight).isLessThanOrEqualTo(9);
+        BDDAssertions.assertThat(tree.size()).isZero();
+        BDDAssertions.assertThat(tree.height()).isEqualTo(1);
+        BDDAssertions.assertThat(tree.nodeCount()).isEqualTo(1);
+        BDDAssertions.assertThat(tree.searchContained(-2_000, -2_000, 2_000, 2_000, id -> { })).isZero();
+    }
+
+    @Test
+    void load_RandomEntriesThenChanges_SameAsScan() {
+        IntRTree tree = new IntRTree(8);
+        Map<Long, int[]> expected = new HashMap<>();
+        long[] ids = new long[5_000];
+        int[] bounds = new int[ids.length * 4];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            int[] entryBounds = randomBounds();
+            System.arraycopy(entryBounds, 0, bounds, i * 4, 4);
+            expected.put(ids[i], entryBounds);
+        }
+
+        //when
+        tree.load(ids, bounds, ids.length);
+
+        //then
+        assertSameAsScan(tree, expected);
+
+        //when
+        for (long id = 0; id < ids.length; id += 3) {
+            tree.remove(id);
+            expected.remove(id);
+        }
+        for (long id = 1; id < ids.length; id += 3) {
+            int[] entryBounds = randomBounds();
+            tree.put(id, entryBounds[0], entryBounds[1], entryBounds[2], entryBounds[3]);
+            expected.put(id, entryBounds);
+        }
+
+        //then
+        assertSameAsScan(tree, expected);
+    }
+
+    private void assertSameAsScan(IntRTree tree, Map<Long, int[]> expected) {
+        BDDAssertions.assertThat(tree.size()).isEqualTo(expected.size());
+        expected.keySet().forEach(id -> BDDAssertions.assertThat(tree.contains(id)).isTrue());
+        for (int query = 0; query < 20; query++) {
+            int[] area = randomArea();
+            List<Long> found = new ArrayList<>();
+            tree.searchContained(area[0], area[1], area[2], area[3], found::add);
+
+            BDDAssertions.assertThat(found)
+                .doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(scan(expected, area));
+        }
+    }
+
+    private List<Long> scan(Map<Long, int[]> entries, int[] area) {
+        List<Long> found = new ArrayList<>();
+        entries.forEach((id, bounds) -> {
+            if (area[0] <= bounds[0] && area[1] <= bounds[1] && area[2] >= bounds[2] && area[3] >= bounds[3]) {
+                found.add(id);
+            }
+        });
+        return found;
+    }
+
+    private int[] randomBounds() {
+        int minX = random.nextInt(2_000) - 1_000;
+        int minY = random.nextInt(2_000) - 1_000;
+        return new int[] {minX, minY, minX + random.nextInt(50), minY + random.nextInt(50)};
+    }
+
+    private int[] randomArea() {
+        int minX = random.nextInt(2_400) - 1_200;
+        int minY = random.nextInt(2_400) - 1_200;
+        return new int[] {minX, minY, minX + random.nextInt(800), minY + random.nextInt(800)};
+    }
+}
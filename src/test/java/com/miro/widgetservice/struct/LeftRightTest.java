@@ -0,0 +1,75 @@
+package com.miro.widgetservice.struct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.SneakyThrows;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+
+class LeftRightTest {
+
+    @SneakyThrows
+    @Test
+    void read_ConcurrentWrites_AlwaysSeeCompleteWrite() {
+        LeftRight<long[]> leftRight = new LeftRight<>(new long[2], new long[2]);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //given
+        List<Future<Long>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(executor.submit(() -> {
+                long reads = 0;
+                long lastSeen = 0;
+                while (running.get()) {
+                    long[] pair = leftRight.read(state -> new long[] {state[0], state[1]});
+                    BDDAssertions.assertThat(pair[0] + pair[1]).isZero();
+                    BDDAssertions.assertThat(pair[0]).isGreaterThanOrEqualTo(lastSeen);
+                    lastSeen = pair[0];
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            leftRight.write(state -> {
+                state[0]++;
+                state[1]--;
+                return null;
+            });
+        }
+        running.set(false);
+
+        //then
+        for (Future<Long> reader : readers) {
+            BDDAssertions.assertThat(reader.get()).isPositive();
+        }
+        executor.shutdown();
+        BDDAssertions.assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        BDDAssertions.assertThat(leftRight.<Long>read(state -> state[0])).isEqualTo(100_000L);
+        BDDAssertions.assertThat(leftRight.getVersion()).isEqualTo(100_000L);
+    }
+
+    @Test
+    void write_FailingWriter_BothReplicasStayEqual() {
+        LeftRight<long[]> leftRight = new LeftRight<>(new long[1], new long[1]);
+
+        //when
+        Throwable thrown = BDDAssertions.catchThrowable(() -> leftRight.write(state -> {
+            state[0]++;
+            throw new IllegalStateException("failed");
+        }));
+        leftRight.write(state -> state[0]);
+
+        //then
+        BDDAssertions.assertThat(thrown).hasMessage("failed");
+        BDDAssertions.assertThat(leftRight.<Long>read(state -> state[0])).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,200 @@
+package com.miro.widgetservice.struct;
+
+import com.miro.widgetservice.dto.SearchAreaDto;
+import com.miro.widgetservice.model.Widget;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SpatialIndexTest {
+
+    @ParameterizedTest
+    @MethodSource("spatialIndexes")
+    void findInArea_RandomUpdates_SameAsBruteForce(Supplier<SpatialIndex> indexSupplier) {
+        SpatialIndex spatialIndex = indexSupplier.get();
+        Map<Long, Widget> widgets = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(1_000) + 1;
+            //given
+            if (random.nextInt(4) == 0) {
+                Widget removed = widgets.remove(id);
+                if (removed != null) {
+                    spatialIndex.deleteIfExist(id);
+                }
+            } else {
+                Widget widget = getWidget(id, step, random);
+                widgets.put(id, widget);
+                putOrReplace(spatialIndex, widget);
+            }
+
+            if (step % 100 == 0) {
+                SearchAreaDto area = getArea(random);
+
+                //when
+                List<Long> found = findInArea(spatialIndex, area);
+
+                //then
+                List<Long> expected = widgets.values().stream()
+                    .filter(w -> isInArea(area, w))
+                    .map(Widget::getId)
+                    .collect(Collectors.toList());
+
+                BDDAssertions.assertThat(found)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+                BDDAssertions.assertThat(spatialIndex.size())
+                    .isEqualTo(widgets.size());
+            }
+        }
+
+        IndexStats stats = spatialIndex.getStats();
+        BDDAssertions.assertThat(stats.getSize()).isEqualTo(widgets.size());
+        BDDAssertions.assertThat(stats.getQueries()).isPositive();
+        BDDAssertions.assertThat(stats.getEstimatedMemoryBytes()).isPositive();
+    }
+
+    @ParameterizedTest
+    @MethodSource("spatialIndexes")
+    void findInArea_AfterLoadAll_SameAsBruteForce(Supplier<SpatialIndex> indexSupplier) {
+        SpatialIndex spatialIndex = indexSupplier.get();
+        Random random = new Random(7);
+        putOrReplace(spatialIndex, getWidget(100_000L, -1, random));
+
+        //given
+        List<Widget> widgets = IntStream.range(0, 5_000)
+            .mapToObj(i -> getWidget(i + 1, i, random))
+            .collect(Collectors.toList());
+
+        //when
+        loadAll(spatialIndex, widgets);
+        Widget movedWidget = getWidget(1L, 5_000, random);
+        putOrReplace(spatialIndex, movedWidget);
+        widgets.set(0, movedWidget);
+
+        //then
+        BDDAssertions.assertThat(spatialIndex.size())
+            .isEqualTo(widgets.size());
+
+        for (int i = 0; i < 50; i++) {
+            SearchAreaDto area = getArea(random);
+            List<Long> expected = widgets.stream()
+                .filter(w -> isInArea(area, w))
+                .map(Widget::getId)
+                .collect(Collectors.toList());
+
+            BDDAssertions.assertThat(findInArea(spatialIndex, area))
+                .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("spatialIndexes")
+    void findInArea_AfterDeleteAll_Empty(Supplier<SpatialIndex> indexSupplier) {
+        SpatialIndex spatialIndex = indexSupplier.get();
+        putOrReplace(spatialIndex, getWidget(1L, 1, new Random(1)));
+
+        //when
+        spatialIndex.deleteAll();
+
+        //then
+        BDDAssertions.assertThat(findInArea(spatialIndex, getArea(Integer.MIN_VALUE, Integer.MAX_VALUE)))
+            .isEmpty();
+        BDDAssertions.assertThat(spatialIndex.size())
+            .isZero();
+    }
+
+    static Stream<Supplier<SpatialIndex>> spatialIndexes() {
+        return Stream.of(
+            RTreeStorage::new,
+            IntRTreeStorage::new,
+            () -> new GridStorage(64, 16),
+            () -> new QuadTreeStorage(8, 24),
+            () -> new ShardedStorage(IntRTreeStorage::new, ShardTiling.builder()
+                .columns(4)
+                .rows(3)
+                .tileWidth(1_000)
+                .tileHeight(2_000)
+                .originX(-2_000)
+                .originY(-3_000)
+                .build())
+        );
+    }
+
+    private void putOrReplace(SpatialIndex spatialIndex, Widget widget) {
+        spatialIndex.putOrReplace(widget.getId(),
+            widget.getXPoint(),
+            widget.getYPoint(),
+            widget.getXPoint() + widget.getWidth(),
+            widget.getYPoint() + widget.getHeight());
+    }
+
+    private void loadAll(SpatialIndex spatialIndex, List<Widget> widgets) {
+        long[] ids = new long[widgets.size()];
+        int[] bounds = new int[widgets.size() * 4];
+        for (int i = 0; i < widgets.size(); i++) {
+            Widget widget = widgets.get(i);
+            ids[i] = widget.getId();
+            bounds[i * 4] = widget.getXPoint();
+            bounds[i * 4 + 1] = widget.getYPoint();
+            bounds[i * 4 + 2] = widget.getXPoint() + widget.getWidth();
+            bounds[i * 4 + 3] = widget.getYPoint() + widget.getHeight();
+        }
+        spatialIndex.loadAll(ids, bounds, widgets.size());
+    }
+
+    private List<Long> findInArea(SpatialIndex spatialIndex, SearchAreaDto area) {
+        List<Long> found = new ArrayList<>();
+        spatialIndex.findInArea(area.getXPoint1(), area.getYPoint1(), area.getXPoint2(), area.getYPoint2(), found::add);
+        return found;
+    }
+
+    private Widget getWidget(long id, int zIndex, Random random) {
+        int size = random.nextInt(20) == 0 ? 5_000 : 50;
+        return Widget.builder()
+            .id(id)
+            .xPoint(random.nextInt(10_000) - 5_000)
+            .yPoint(random.nextInt(10_000) - 5_000)
+            .width(random.nextInt(size) + 1)
+            .height(random.nextInt(size) + 1)
+            .zIndex(zIndex)
+            .build();
+    }
+
+    private SearchAreaDto getArea(Random random) {
+        int xPoint = random.nextInt(12_000) - 6_000;
+        int yPoint = random.nextInt(12_000) - 6_000;
+        int size = random.nextInt(4_000);
+        return SearchAreaDto.builder()
+            .xPoint1(xPoint)
+            .yPoint1(yPoint)
+            .xPoint2(xPoint + size)
+            .yPoint2(yPoint + size)
+            .build();
+    }
+
+    private SearchAreaDto getArea(int from, int to) {
+        return SearchAreaDto.builder()
+            .xPoint1(from)
+            .yPoint1(from)
+            .xPoint2(to)
+            .yPoint2(to)
+            .build();
+    }
+
+    private boolean isInArea(SearchAreaDto area, Widget widget) {
+        return area.getXPoint1() <= widget.getXPoint()
+            && area.getYPoint1() <= widget.getYPoint()
+            && area.getXPoint2() >= widget.getXPoint() + widget.getWidth()
+            && area.getYPoint2() >= widget.getYPoint() + widget.getHeight();
+    }
+}
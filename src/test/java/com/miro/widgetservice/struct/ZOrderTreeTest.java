@@ -0,0 +1,123 @@
+package com.miro.widgetservice.struct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+
+class ZOrderTreeTest {
+
+    @Test
+    void insertAndRemove_RandomOperations_SameAsShiftedMap() {
+        ZOrderTree zOrderTree = new ZOrderTree();
+        NavigableMap<Integer, Integer> expected = new TreeMap<>();
+        Map<Integer, Integer> zIndexBySlot = new HashMap<>();
+        List<Integer> freeSlots = new ArrayList<>();
+        int nextSlot = 0;
+        Random random = new Random(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            //given
+            if (!zIndexBySlot.isEmpty() && random.nextInt(3) == 0) {
+                int slot = new ArrayList<>(zIndexBySlot.keySet()).get(random.nextInt(zIndexBySlot.size()));
+                expected.remove(zIndexBySlot.remove(slot));
+                freeSlots.add(slot);
+
+                //when
+                zOrderTree.remove(slot);
+            } else {
+                int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.remove(freeSlots.size() - 1);
+                int zIndex = random.nextInt(2_000) - 1_000;
+                insertAndShift(expected, zIndexBySlot, slot, zIndex);
+
+                //when
+                zOrderTree.insert(slot, zIndex);
+            }
+
+            //then
+            if (step % 50 == 0) {
+                assertSameOrder(zOrderTree, expected);
+            }
+        }
+        assertSameOrder(zOrderTree, expected);
+    }
+
+    @Test
+    void lastZIndexWithoutGap_ContiguousRun_LastOfRun() {
+        ZOrderTree zOrderTree = new ZOrderTree();
+
+        //given
+        zOrderTree.insert(0, 5);
+        zOrderTree.insert(1, 6);
+        zOrderTree.insert(2, 7);
+        zOrderTree.insert(3, 10);
+
+        //when
+        int lastZIndex = zOrderTree.lastZIndexWithoutGap(6);
+
+        //then
+        BDDAssertions.assertThat(lastZIndex).isEqualTo(7);
+        BDDAssertions.assertThat(zOrderTree.lastZIndex()).isEqualTo(10);
+    }
+
+    @Test
+    void insert_OccupiedZIndex_ShiftOnlyContiguousRun() {
+        ZOrderTree zOrderTree = new ZOrderTree();
+
+        //given
+        zOrderTree.insert(0, 1);
+        zOrderTree.insert(1, 2);
+        zOrderTree.insert(2, 4);
+
+        //when
+        zOrderTree.insert(3, 1);
+
+        //then
+        BDDAssertions.assertThat(zOrderTree.zIndexOf(3)).isEqualTo(1);
+        BDDAssertions.assertThat(zOrderTree.zIndexOf(0)).isEqualTo(2);
+        BDDAssertions.assertThat(zOrderTree.zIndexOf(1)).isEqualTo(3);
+        BDDAssertions.assertThat(zOrderTree.zIndexOf(2)).isEqualTo(4);
+    }
+
+    private void insertAndShift(NavigableMap<Integer, Integer> expected, Map<Integer, Integer> zIndexBySlot,
+        int slot, int zIndex) {
+        if (expected.containsKey(zIndex)) {
+            int lastZIndex = zIndex;
+            while (expected.containsKey(lastZIndex + 1)) {
+                lastZIndex++;
+            }
+            for (int current = lastZIndex; current >= zIndex; current--) {
+                int shiftedSlot = expected.remove(current);
+                expected.put(current + 1, shiftedSlot);
+                zIndexBySlot.put(shiftedSlot, current + 1);
+            }
+        }
+        expected.put(zIndex, slot);
+        zIndexBySlot.put(slot, zIndex);
+    }
+
+    private void assertSameOrder(ZOrderTree zOrderTree, NavigableMap<Integer, Integer> expected) {
+        List<Integer> slots = new ArrayList<>();
+        List<Integer> zIndexes = new ArrayList<>();
+        for (int slot = zOrderTree.first(); slot != ZOrderTree.NIL; slot = zOrderTree.next(slot)) {
+            slots.add(slot);
+            zIndexes.add(zOrderTree.zIndexOf(slot));
+        }
+
+        BDDAssertions.assertThat(slots).containsExactlyElementsOf(expected.values());
+        BDDAssertions.assertThat(zIndexes).containsExactlyElementsOf(expected.keySet());
+        BDDAssertions.assertThat(zOrderTree.size()).isEqualTo(expected.size());
+        if (!expected.isEmpty()) {
+            BDDAssertions.assertThat(zOrderTree.lastZIndex()).isEqualTo(expected.lastKey());
+            int probe = expected.firstKey() + 1;
+            Integer ceiling = expected.ceilingKey(probe);
+            BDDAssertions.assertThat(zOrderTree.ceiling(probe))
+                .isEqualTo(ceiling == null ? ZOrderTree.NIL : expected.get(ceiling));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.miro.widgetservice.util;
+
+import java.util.Random;
+import org.assertj.core.api.BDDAssertions;
+import org.junit.jupiter.api.Test;
+
+class MortonCodeTest {
+
+    @Test
+    void ranges_RandomRectangles_CoverEveryInsidePoint() {
+        Random random = new Random(42);
+
+        for (int rectangle = 0; rectangle < 500; rectangle++) {
+            //given
+            int minX = random.nextInt(20_000) - 10_000;
+            int minY = random.nextInt(20_000) - 10_000;
+            int maxX = minX + random.nextInt(3_000);
+            int maxY = minY + random.nextInt(3_000);
+
+            //when
+            long[] ranges = MortonCode.ranges(minX, minY, maxX, maxY, 32);
+
+            //then
+            BDDAssertions.assertThat(ranges.length / 2).isBetween(1, 32);
+            for (int i = 2; i < ranges.length; i += 2) {
+                BDDAssertions.assertThat(ranges[i]).isGreaterThan(ranges[i - 1]);
+            }
+            for (int point = 0; point < 200; point++) {
+                int xPoint = minX + random.nextInt(maxX - minX + 1);
+                int yPoint = minY + random.nextInt(maxY - minY + 1);
+                BDDAssertions.assertThat(isInRanges(MortonCode.key(xPoint, yPoint), ranges)).isTrue();
+            }
+            BDDAssertions.assertThat(isInRanges(MortonCode.key(minX, minY), ranges)).isTrue();
+            BDDAssertions.assertThat(isInRanges(MortonCode.key(maxX, maxY), ranges)).isTrue();
+        }
+    }
+
+    @Test
+    void ranges_WholePlane_SingleRange() {
+        //when
+        long[] ranges = MortonCode.ranges(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 32);
+
+        //then
+        BDDAssertions.assertThat(ranges).containsExactly(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Test
+    void key_CornersOfPlane_FirstAndLastKey() {
+        BDDAssertions.assertThat(MortonCode.key(Integer.MIN_VALUE, Integer.MIN_VALUE)).isEqualTo(Long.MIN_VALUE);
+        BDDAssertions.assertThat(MortonCode.key(Integer.MAX_VALUE, Integer.MAX_VALUE)).isEqualTo(Long.MAX_VALUE);
+        BDDAssertions.assertThat(MortonCode.key(-1, -1)).isLessThan(MortonCode.key(0, 0));
+    }
+
+    private boolean isInRanges(long key, long[] ranges) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (key >= ranges[i] && key <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
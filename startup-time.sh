@@ -0,0 +1,22 @@
+#! /bin/bash
+# Milliseconds from JVM launch to the first successful GET /api/v1/widget.
+# ./startup-time.sh <jar> <profiles> [java options...]
+# ./startup-time.sh target/cds/widget-service-1.0.0-cds.jar memory,startup -XX:SharedArchiveFile=target/cds/widget-service.jsa
+JAR=$1
+PROFILES=$2
+shift 2
+PORT=${PORT:-8081}
+
+START=$(date +%s%N)
+java "$@" -Dserver.port="$PORT" -Dspring.profiles.active="$PROFILES" -jar "$JAR" > /dev/null 2>&1 &
+PID=$!
+until curl -sf "http://localhost:$PORT/api/v1/widget?page=0&size=1" > /dev/null; do
+  if ! kill -0 $PID 2> /dev/null; then
+    echo "Service exited" >&2
+    exit 1
+  fi
+  sleep 0.01
+done
+echo "$PROFILES $*: $(( ($(date +%s%N) - START) / 1000000 )) ms"
+kill $PID
+wait $PID 2> /dev/null